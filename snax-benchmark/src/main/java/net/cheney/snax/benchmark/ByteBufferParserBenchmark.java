@@ -0,0 +1,105 @@
+package net.cheney.snax.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compares decoding a UTF-8 {@link ByteBuffer} into a CharBuffer and then parsing it with 
+ * parsing the bytes directly.
+ */
+public class ByteBufferParserBenchmark  {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	public abstract static class BaseBenchmark extends Benchmarkable {
+		
+		protected ByteBuffer doc;
+		private String name;
+		
+		public BaseBenchmark(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			doc = ByteBuffer.wrap(readInputStream(getInputStream(name)));
+		}
+		
+		private static InputStream getInputStream(String string) {
+			return ByteBufferParserBenchmark.class.getClassLoader().getResourceAsStream(string);
+		}
+
+		private static byte[] readInputStream(InputStream stream) throws IOException {
+			try {
+				return IOUtils.toByteArray(stream);
+			} finally {
+				IOUtils.closeQuietly(stream);
+			}
+		}
+		
+		@Override
+		public void benchmark() {
+			Document d = parseDocument(doc.duplicate());
+			assertThat(!d.rootElement().qname().localpart().isEmpty());
+		}
+		
+		protected abstract Document parseDocument(ByteBuffer buffer);
+		
+		@Override
+		public void teardown() {
+			doc = null;
+		}
+		
+		private void assertThat(boolean bool) {
+			if(!bool) {
+				throw new AssertionError();
+			}
+		}
+	}
+	
+	public final static class DecodeThenParseBenchmark extends BaseBenchmark {
+		
+		public DecodeThenParseBenchmark(String name) {
+			super(name);
+		}
+
+		@Override
+		protected Document parseDocument(ByteBuffer buffer) {
+			return SNAX.parse(UTF_8.decode(buffer));
+		}
+	}
+	
+	public final static class DirectUTF8Benchmark extends BaseBenchmark {
+		
+		public DirectUTF8Benchmark(String name) {
+			super(name);
+		}
+
+		@Override
+		protected Document parseDocument(ByteBuffer buffer) {
+			return SNAX.parse(buffer, UTF_8);
+		}
+	}
+	
+	public static void main(String[] args) {
+		Benchmark.Builder benchmark = Benchmark.newBenchmark("ByteBufferParserBenchmark");
+		for(String name : Arrays.asList(args)) {
+			benchmark = benchmark.of("Decode then parse ("+name+")", new DecodeThenParseBenchmark(name));
+			benchmark = benchmark.of("Direct UTF-8 ("+name+")", new DirectUTF8Benchmark(name));
+		}
+		BenchmarkResult results = benchmark.setRepetitions(500).setIterations(25).run();
+		System.out.println(results.toString());
+	}
+
+}
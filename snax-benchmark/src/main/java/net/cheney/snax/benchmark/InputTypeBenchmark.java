@@ -0,0 +1,168 @@
+package net.cheney.snax.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Parses the same document held as a String, a char[], a heap and a direct CharBuffer and a 
+ * StringBuilder. A String is copied with getChars and a char[] or heap CharBuffer is read in 
+ * place, the others are copied a char at a time.
+ */
+public class InputTypeBenchmark {
+	
+	public abstract static class BaseBenchmark extends Benchmarkable {
+		
+		private final String name;
+		
+		protected String doc;
+		
+		public BaseBenchmark(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			InputStream stream = InputTypeBenchmark.class.getClassLoader().getResourceAsStream(name);
+			try {
+				doc = IOUtils.toString(stream, "UTF-8");
+			} finally {
+				IOUtils.closeQuietly(stream);
+			}
+		}
+		
+		@Override
+		public void benchmark() {
+			Document d = parseDocument();
+			assertThat(!d.rootElement().qname().localpart().isEmpty());
+		}
+		
+		protected abstract Document parseDocument();
+		
+		@Override
+		public void teardown() {
+			doc = null;
+		}
+		
+		private void assertThat(boolean bool) {
+			if(!bool) {
+				throw new AssertionError();
+			}
+		}
+	}
+	
+	public final static class StringBenchmark extends BaseBenchmark {
+		
+		public StringBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		protected Document parseDocument() {
+			return SNAX.parse(doc);
+		}
+	}
+	
+	public final static class CharArrayBenchmark extends BaseBenchmark {
+		
+		private char[] chars;
+		
+		public CharArrayBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			super.setup();
+			chars = doc.toCharArray();
+		}
+		
+		@Override
+		protected Document parseDocument() {
+			return SNAX.parse(chars, 0, chars.length);
+		}
+	}
+	
+	public final static class HeapCharBufferBenchmark extends BaseBenchmark {
+		
+		private CharBuffer buffer;
+		
+		public HeapCharBufferBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			super.setup();
+			buffer = CharBuffer.wrap(doc.toCharArray());
+		}
+		
+		@Override
+		protected Document parseDocument() {
+			return SNAX.parse(buffer);
+		}
+	}
+	
+	public final static class DirectCharBufferBenchmark extends BaseBenchmark {
+		
+		private CharBuffer buffer;
+		
+		public DirectCharBufferBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			super.setup();
+			buffer = ByteBuffer.allocateDirect(doc.length() * 2).asCharBuffer();
+			buffer.put(doc).flip();
+		}
+		
+		@Override
+		protected Document parseDocument() {
+			return SNAX.parse(buffer);
+		}
+	}
+	
+	public final static class StringBuilderBenchmark extends BaseBenchmark {
+		
+		private StringBuilder builder;
+		
+		public StringBuilderBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		public void setup() throws IOException {
+			super.setup();
+			builder = new StringBuilder(doc);
+		}
+		
+		@Override
+		protected Document parseDocument() {
+			return SNAX.parse(builder);
+		}
+	}
+	
+	public static void main(String[] args) {
+		for(String name : new String[] { "periodic.xml", "oasis.xml" }) {
+			BenchmarkResult results = Benchmark.newBenchmark("InputTypeBenchmark " + name)
+				.of("String", new StringBenchmark(name))
+				.of("char[]", new CharArrayBenchmark(name))
+				.of("Heap CharBuffer", new HeapCharBufferBenchmark(name))
+				.of("Direct CharBuffer", new DirectCharBufferBenchmark(name))
+				.of("StringBuilder", new StringBuilderBenchmark(name))
+				.setRepetitions(10).setIterations(25).run();
+			System.out.println(results.toString());
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package net.cheney.snax.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+
+/**
+ * Parses a document made mostly of long text runs and base64 CDATA sections, as a feed with 
+ * attachments would be, where the time goes on finding the end of each run.
+ */
+public class LargeRunBenchmark {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+	
+	static String document(int entries, int attachmentLength) {
+		final Random random = new Random(entries);
+		final StringBuilder sb = new StringBuilder("<feed>");
+		for(int i = 0 ; i < entries ; ++i) {
+			sb.append("<entry id='").append(i).append("'><summary>");
+			for(int j = 0 ; j < attachmentLength / 64 ; ++j) {
+				sb.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+			}
+			sb.append("</summary><attachment><![CDATA[");
+			for(int j = 0 ; j < attachmentLength ; ++j) {
+				sb.append(BASE64[random.nextInt(BASE64.length)]);
+			}
+			sb.append("]]></attachment></entry>");
+		}
+		return sb.append("</feed>").toString();
+	}
+	
+	public final static class StringBenchmark extends Benchmarkable {
+		
+		private String doc;
+		
+		@Override
+		public void setup() {
+			doc = document(50, 20000);
+		}
+		
+		@Override
+		public void benchmark() {
+			Document d = SNAX.parse(doc);
+			assertThat(d.rootElement().hasChildren());
+		}
+		
+		@Override
+		public void teardown() {
+			doc = null;
+		}
+	}
+	
+	public final static class DirectUTF8Benchmark extends Benchmarkable {
+		
+		private ByteBuffer doc;
+		
+		@Override
+		public void setup() {
+			doc = ByteBuffer.wrap(document(50, 20000).getBytes(UTF_8));
+		}
+		
+		@Override
+		public void benchmark() {
+			Document d = SNAX.parse(doc.duplicate(), UTF_8);
+			assertThat(d.rootElement().hasChildren());
+		}
+		
+		@Override
+		public void teardown() {
+			doc = null;
+		}
+	}
+	
+	private static void assertThat(boolean bool) {
+		if(!bool) {
+			throw new AssertionError();
+		}
+	}
+	
+	public static void main(String[] args) {
+		BenchmarkResult results = Benchmark.newBenchmark("LargeRunBenchmark")
+			.of("String", new StringBenchmark())
+			.of("Direct UTF-8", new DirectUTF8Benchmark())
+			.setRepetitions(20).setIterations(25).run();
+		System.out.println(results.toString());
+	}
+}
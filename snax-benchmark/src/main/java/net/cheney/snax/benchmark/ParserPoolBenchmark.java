@@ -0,0 +1,143 @@
+package net.cheney.snax.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.parser.ParserPool;
+
+/**
+ * Parses a batch of small messages, as a request handling thread would, with a new parser for 
+ * each message and with the parsers of a {@link ParserPool}.
+ */
+public class ParserPoolBenchmark {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private static final Charset UTF_16 = Charset.forName("UTF-16");
+	
+	private static final int MESSAGES = 1000;
+	
+	static String message(int i) {
+		return "<soap:Envelope xmlns:soap='http://schemas.xmlsoap.org/soap/envelope/'><soap:Body>"
+			+ "<order id='" + i + "' status='open'><customer><name>Customer " + i + "</name></customer>"
+			+ "<lines><line sku='A" + i + "' qty='1'/><line sku='B" + i + "' qty='2'/></lines>"
+			+ "</order></soap:Body></soap:Envelope>";
+	}
+	
+	public abstract static class BaseBenchmark extends Benchmarkable {
+		
+		protected String[] messages;
+		
+		protected ByteBuffer[] buffers, utf16Buffers;
+		
+		@Override
+		public void setup() {
+			messages = new String[MESSAGES];
+			buffers = new ByteBuffer[MESSAGES];
+			utf16Buffers = new ByteBuffer[MESSAGES];
+			for(int i = 0 ; i < MESSAGES ; ++i) {
+				messages[i] = message(i);
+				buffers[i] = ByteBuffer.wrap(messages[i].getBytes(UTF_8));
+				utf16Buffers[i] = ByteBuffer.wrap(messages[i].getBytes(UTF_16));
+			}
+		}
+		
+		@Override
+		public void benchmark() {
+			for(int i = 0 ; i < MESSAGES ; ++i) {
+				Document d = parseDocument(i);
+				assertThat(d.rootElement().hasChildren());
+			}
+		}
+		
+		protected abstract Document parseDocument(int i);
+		
+		@Override
+		public void teardown() {
+			messages = null;
+			buffers = null;
+			utf16Buffers = null;
+		}
+		
+		private void assertThat(boolean bool) {
+			if(!bool) {
+				throw new AssertionError();
+			}
+		}
+	}
+	
+	public final static class NewParserBenchmark extends BaseBenchmark {
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return SNAX.parse(messages[i]);
+		}
+	}
+	
+	public final static class PooledParserBenchmark extends BaseBenchmark {
+		
+		private final ParserPool pool = new ParserPool();
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return pool.parse(messages[i]);
+		}
+	}
+	
+	public final static class NewParserUTF8Benchmark extends BaseBenchmark {
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return SNAX.parse(buffers[i].duplicate(), UTF_8);
+		}
+	}
+	
+	public final static class PooledParserUTF8Benchmark extends BaseBenchmark {
+		
+		private final ParserPool pool = new ParserPool();
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return pool.parse(buffers[i].duplicate(), UTF_8);
+		}
+	}
+	
+	/**
+	 * Decodes each message with {@link Charset#decode(ByteBuffer)}, as callers had to before the 
+	 * encoding was detected.
+	 */
+	public final static class DecodedUTF16Benchmark extends BaseBenchmark {
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return SNAX.parse(UTF_16.decode(utf16Buffers[i].duplicate()));
+		}
+	}
+	
+	public final static class PooledParserDetectedUTF16Benchmark extends BaseBenchmark {
+		
+		private final ParserPool pool = new ParserPool();
+		
+		@Override
+		protected Document parseDocument(int i) {
+			return pool.parse(utf16Buffers[i].duplicate());
+		}
+	}
+	
+	public static void main(String[] args) {
+		BenchmarkResult results = Benchmark.newBenchmark("ParserPoolBenchmark")
+			.of("New parser", new NewParserBenchmark())
+			.of("Pooled parser", new PooledParserBenchmark())
+			.of("New parser, UTF-8", new NewParserUTF8Benchmark())
+			.of("Pooled parser, UTF-8", new PooledParserUTF8Benchmark())
+			.of("Decoded, UTF-16", new DecodedUTF16Benchmark())
+			.of("Pooled parser, detected UTF-16", new PooledParserDetectedUTF16Benchmark())
+			.setRepetitions(20).setIterations(25).run();
+		System.out.println(results.toString());
+	}
+}
@@ -0,0 +1,94 @@
+package net.cheney.snax.benchmark;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Snapshot;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reloads a reference document, by parsing its XML again and by loading a {@link Snapshot} of it.
+ */
+public class SnapshotBenchmark {
+
+	public abstract static class BaseBenchmark extends Benchmarkable {
+
+		protected String xml;
+
+		protected byte[] snapshot;
+
+		private final String name;
+
+		public BaseBenchmark(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void setup() throws IOException {
+			InputStream stream = SnapshotBenchmark.class.getClassLoader().getResourceAsStream(name);
+			try {
+				xml = IOUtils.toString(stream, "UTF-8");
+			} finally {
+				closeQuietly(stream);
+			}
+			snapshot = Snapshot.toByteArray(SNAX.parse(xml));
+		}
+
+		@Override
+		public void benchmark() {
+			if(!load().rootElement().hasChildren()) {
+				throw new AssertionError();
+			}
+		}
+
+		protected abstract Document load();
+
+		@Override
+		public void teardown() {
+			xml = null;
+			snapshot = null;
+		}
+	}
+
+	public final static class ParseBenchmark extends BaseBenchmark {
+
+		public ParseBenchmark(String name) {
+			super(name);
+		}
+
+		@Override
+		protected Document load() {
+			return SNAX.parse(xml);
+		}
+	}
+
+	public final static class SnapshotLoadBenchmark extends BaseBenchmark {
+
+		public SnapshotLoadBenchmark(String name) {
+			super(name);
+		}
+
+		@Override
+		protected Document load() {
+			return Snapshot.read(snapshot);
+		}
+	}
+
+	public static void main(String[] args) {
+		BenchmarkResult results = Benchmark.newBenchmark("SnapshotBenchmark")
+			.of("Parse periodic.xml", new ParseBenchmark("periodic.xml"))
+			.of("Load snapshot of periodic.xml", new SnapshotLoadBenchmark("periodic.xml"))
+			.of("Parse oasis.xml", new ParseBenchmark("oasis.xml"))
+			.of("Load snapshot of oasis.xml", new SnapshotLoadBenchmark("oasis.xml"))
+			.setRepetitions(100).setIterations(25).run();
+		System.out.println(results.toString());
+	}
+}
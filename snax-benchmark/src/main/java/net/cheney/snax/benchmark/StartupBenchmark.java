@@ -0,0 +1,94 @@
+package net.cheney.snax.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.cheney.benchmark.Benchmark;
+import net.cheney.benchmark.BenchmarkResult;
+import net.cheney.benchmark.Benchmarkable;
+import net.cheney.snax.SNAX;
+
+/**
+ * Times the first parse in a fresh JVM, as a short lived tool or handler would see it. Each
+ * iteration starts a new JVM, so the time to first parse is the difference between a JVM that
+ * parses one small document and one that exits without parsing.
+ */
+public class StartupBenchmark {
+
+	private static final String DOCUMENT = "<order id='1'><customer><name>Customer</name></customer>"
+		+ "<lines><line sku='A' qty='1'/><line sku='B' qty='2'/></lines></order>";
+
+	/**
+	 * Run in the new JVM, it parses DOCUMENT unless it is passed an argument.
+	 */
+	public static final class FirstParse {
+
+		public static void main(String[] args) {
+			if(args.length == 0 && !SNAX.parse(DOCUMENT).rootElement().hasChildren()) {
+				System.exit(1);
+			}
+		}
+	}
+
+	public abstract static class BaseBenchmark extends Benchmarkable {
+
+		private ProcessBuilder process;
+
+		@Override
+		public void setup() {
+			final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			process = new ProcessBuilder(command(java, System.getProperty("java.class.path"), FirstParse.class.getName()));
+			process.redirectErrorStream(true);
+		}
+
+		protected abstract String[] command(String java, String classpath, String main);
+
+		@Override
+		public void benchmark() {
+			try {
+				final Process p = process.start();
+				p.getOutputStream().close();
+				while(p.getInputStream().read() != -1) {
+					// drain, the child prints nothing unless it fails
+				}
+				if(p.waitFor() != 0) {
+					throw new AssertionError(String.format("%s exited with %d", process.command(), p.exitValue()));
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public void teardown() {
+			process = null;
+		}
+	}
+
+	public final static class EmptyJVMBenchmark extends BaseBenchmark {
+
+		@Override
+		protected String[] command(String java, String classpath, String main) {
+			return new String[] { java, "-cp", classpath, main, "exit" };
+		}
+	}
+
+	public final static class FirstParseBenchmark extends BaseBenchmark {
+
+		@Override
+		protected String[] command(String java, String classpath, String main) {
+			return new String[] { java, "-cp", classpath, main };
+		}
+	}
+
+	public static void main(String[] args) {
+		BenchmarkResult results = Benchmark.newBenchmark("StartupBenchmark")
+			.of("JVM start", new EmptyJVMBenchmark())
+			.of("JVM start and first parse", new FirstParseBenchmark())
+			.setRepetitions(5).setIterations(4).run();
+		System.out.println(results.toString());
+	}
+}
@@ -9,12 +9,13 @@ import net.cheney.benchmark.BenchmarkResult;
 import net.cheney.benchmark.Benchmarkable;
 import net.cheney.snax.SNAX;
 import net.cheney.snax.model.Document;
+import net.cheney.snax.parser.XMLParser;
 
 import org.apache.commons.io.IOUtils;
 
 public class XMLParserBenchmark  {
 	
-	public final static class XMLBenchmark extends Benchmarkable {
+	public static class XMLBenchmark extends Benchmarkable {
 		
 		String doc;
 		private String name;
@@ -46,7 +47,7 @@ public class XMLParserBenchmark  {
 			assertThat(!d.rootElement().qname().localpart().isEmpty());
 		}
 		
-		private Document parseDocument(String string) {
+		Document parseDocument(String string) {
 			return SNAX.parse(string);
 		}
 		
@@ -63,10 +64,28 @@ public class XMLParserBenchmark  {
 		
 	}
 	
+	/**
+	 * The {@link XMLParser} state machine, which {@link SNAX#parse(CharSequence)} used before {@link net.cheney.snax.parser.XMLScanner}
+	 */
+	public final static class StateMachineBenchmark extends XMLBenchmark {
+		
+		public StateMachineBenchmark(String name) {
+			super(name);
+		}
+		
+		@Override
+		Document parseDocument(String string) {
+			XMLParser parser = new XMLParser();
+			parser.parse(string);
+			return parser.document();
+		}
+	}
+	
 	public static void main(String[] args) {
 		Benchmark.Builder benchmark = Benchmark.newBenchmark("XMLParserBenchmark");
 		for(String name : Arrays.asList(args)) {
 			benchmark = benchmark.of(name, new XMLBenchmark(name));
+			benchmark = benchmark.of("State machine ("+name+")", new StateMachineBenchmark(name));
 		}
 		BenchmarkResult results = benchmark.setRepetitions(500).setIterations(25).run();
 		System.out.println(results.toString());
@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class ByteBufferParserBenchmarkTest extends ByteBufferParserBenchmark {
+
+	@Test public void testByteBufferParserBenchmark() {
+		main(new String[] { "benchmark.xml", "oasis.xml", "periodic.xml", "xmltest.xml" } );
+	}
+}
@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class InputTypeBenchmarkTest extends InputTypeBenchmark {
+
+	@Test public void testInputTypeBenchmark() {
+		main(new String[0]);
+	}
+}
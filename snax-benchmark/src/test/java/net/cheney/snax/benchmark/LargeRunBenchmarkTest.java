@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class LargeRunBenchmarkTest extends LargeRunBenchmark {
+
+	@Test public void testLargeRunBenchmark() {
+		main(new String[0]);
+	}
+}
@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class ParserPoolBenchmarkTest extends ParserPoolBenchmark {
+
+	@Test public void testParserPoolBenchmark() {
+		main(new String[0]);
+	}
+}
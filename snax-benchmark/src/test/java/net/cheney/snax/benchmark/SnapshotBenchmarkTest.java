@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class SnapshotBenchmarkTest extends SnapshotBenchmark {
+
+	@Test public void testSnapshotBenchmark() {
+		main(new String[0]);
+	}
+}
@@ -0,0 +1,10 @@
+package net.cheney.snax.benchmark;
+
+import org.junit.Test;
+
+public class StartupBenchmarkTest extends StartupBenchmark {
+
+	@Test public void testStartupBenchmark() {
+		main(new String[0]);
+	}
+}
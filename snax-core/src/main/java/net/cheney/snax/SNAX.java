@@ -1,8 +1,19 @@
 package net.cheney.snax;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import javax.annotation.Nonnull;
 
@@ -10,9 +21,33 @@ import net.cheney.snax.builder.DocumentBuilder;
 import net.cheney.snax.builder.Element;
 import net.cheney.snax.builder.FragmentBuilder;
 import net.cheney.snax.model.Document;
+import net.cheney.snax.parser.AsyncParser;
+import net.cheney.snax.parser.BuilderHandler;
+import net.cheney.snax.parser.EncodingDetector;
+import net.cheney.snax.parser.ParallelParser;
+import net.cheney.snax.parser.ParseHandler;
+import net.cheney.snax.parser.ParserPool;
+import net.cheney.snax.parser.Projection;
+import net.cheney.snax.parser.RecordIterator;
 import net.cheney.snax.parser.XMLParser;
+import net.cheney.snax.parser.XMLScanner;
 
 public final class SNAX {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	// files larger than this are mapped and parsed one window at a time
+	private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	// the parsers and decoders of each thread that parses a ByteBuffer, created on first use
+	private static final class Pool {
+		static final ParserPool PARSERS = new ParserPool();
+	}
+
+	// shares its buffer pool between every asynchronous parse, created on first use to keep it out of a synchronous parse
+	private static final class Async {
+		static final AsyncParser PARSER = new AsyncParser();
+	}
 
 	private SNAX() { 
 		// prevent construction
@@ -23,17 +58,226 @@ public final class SNAX {
 	}
 
 	public static Document parse(@Nonnull CharSequence seq) {
-		XMLParser parser = new XMLParser();
+		XMLScanner scanner = new XMLScanner();
+		scanner.parse(seq);
+		return scanner.document();
+	}
+	
+	/**
+	 * Parse xml[offset, offset + length) in place, without copying it.
+	 */
+	public static Document parse(@Nonnull char[] xml, int offset, int length) {
+		XMLScanner scanner = new XMLScanner();
+		scanner.parse(xml, offset, length);
+		return scanner.document();
+	}
+	
+	/**
+	 * Build only the parts of seq in projection, the rest of the document is skipped unchecked.
+	 */
+	public static Document parse(@Nonnull CharSequence seq, @Nonnull Projection projection) {
+		XMLScanner scanner = new XMLScanner(new BuilderHandler(), projection);
+		scanner.parse(seq);
+		return scanner.document();
+	}
+	
+	/**
+	 * Parse seq into a lazy {@link Document}, text, comments and attribute values are not copied out of seq 
+	 * until they are first read. The document retains seq, which must not be modified while the document 
+	 * is in use. Worthwhile when only a small part of a large document is read.
+	 */
+	public static Document parseLazy(@Nonnull CharSequence seq) {
+		// a CharBuffer is read relative to its position, which the caller may move later
+		final CharSequence source = seq instanceof CharBuffer ? ((CharBuffer)seq).duplicate() : seq;
+		XMLScanner scanner = new XMLScanner(new BuilderHandler(source));
+		scanner.parse(source);
+		return scanner.document();
+	}
+	
+	/**
+	 * Parse seq into a lazy {@link Document} in which the content of each element deeper than depth, 
+	 * the root being at depth 1, is only bracketed. It is parsed the first time it is read, so 
+	 * the branches that are never visited are only scanned for their end tags. Errors in that 
+	 * content are not reported until it is read.
+	 */
+	public static Document parseLazy(@Nonnull CharSequence seq, int depth) {
+		return parseLazy(seq, depth, false);
+	}
+	
+	/**
+	 * As {@link #parseLazy(CharSequence, int)}, and if lazyAttributes is set the attributes of each 
+	 * element are only tokenized the first time its attributes or content are read. They are still 
+	 * checked while seq is parsed, so malformed attributes are reported here. Pass 
+	 * {@link Integer#MAX_VALUE} as depth to defer only the attributes.
+	 */
+	public static Document parseLazy(@Nonnull CharSequence seq, int depth, boolean lazyAttributes) {
+		final CharSequence source = seq instanceof CharBuffer ? ((CharBuffer)seq).duplicate() : seq;
+		XMLScanner scanner = new XMLScanner(new BuilderHandler(source), depth, lazyAttributes);
+		scanner.parse(source);
+		return scanner.document();
+	}
+	
+	/**
+	 * Report seq to handler without building a {@link Document}.
+	 */
+	public static void parse(@Nonnull CharSequence seq, @Nonnull ParseHandler handler) {
+		XMLParser parser = new XMLParser(handler);
 		parser.parse(seq);
+		parser.endOfInput();
+	}
+	
+	/**
+	 * Report buffer to handler without building a {@link Document}, any charset is accepted.
+	 */
+	public static void parse(@Nonnull ByteBuffer buffer, @Nonnull Charset charset, @Nonnull ParseHandler handler) {
+		XMLParser parser = new XMLParser(handler, charset);
+		parser.feed(buffer);
+		parser.endOfInput();
+	}
+	
+	/**
+	 * UTF-8, ISO-8859-1 and US-ASCII input is parsed directly from the buffer, other
+	 * charsets are decoded into a {@link CharBuffer} that the calling thread reuses. The thread's 
+	 * parser is reset before each document, so one that failed leaves nothing in the next.
+	 */
+	public static Document parse(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+		return Pool.PARSERS.parse(buffer, charset);
+	}
+
+	/**
+	 * As {@link #parse(ByteBuffer, Charset)} in the charset named by buffer's byte order mark or 
+	 * XML declaration, or UTF-8 if it has neither, see {@link EncodingDetector}.
+	 * 
+	 * @throws IllegalArgumentException if the declared encoding is not supported
+	 */
+	public static Document parse(@Nonnull ByteBuffer buffer) {
+		return Pool.PARSERS.parse(buffer);
+	}
+
+	public static Document parse(@Nonnull Path path) throws IOException {
+		return parse(path, UTF_8);
+	}
+	
+	public static Document parse(@Nonnull Path path, @Nonnull Charset charset) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return parse(channel, charset);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	public static Document parse(@Nonnull FileChannel channel) throws IOException {
+		return parse(channel, UTF_8);
+	}
+	
+	/**
+	 * Map the channel into memory and parse it in place, the file is never copied onto the heap. 
+	 * Files larger than 2Gb are mapped and parsed in consecutive windows.
+	 */
+	public static Document parse(@Nonnull FileChannel channel, @Nonnull Charset charset) throws IOException {
+		return parse(channel, charset, MAX_WINDOW_SIZE);
+	}
+	
+	static Document parse(@Nonnull FileChannel channel, @Nonnull Charset charset, long windowSize) throws IOException {
+		final long size = channel.size();
+		if(!XMLParser.supports(charset)) {
+			if(size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(String.format("%s cannot be parsed directly, decode it first", charset));
+			}
+			return parse((CharSequence)charset.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+		}
+		XMLParser parser = new XMLParser();
+		for(long position = 0 ; position < size ; ) {
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+			parser.parse(window, charset);
+			if(window.position() == 0) {
+				// a multi byte sequence truncated by the end of the file
+				break;
+			}
+			// a multi byte sequence cut off by the end of the window is left unread, map it again
+			position += window.position();
+		}
 		return parser.document();
 	}
+
+	/**
+	 * Parse seq using every core, the root's children are parsed concurrently on the common 
+	 * {@link java.util.concurrent.ForkJoinPool}. Worthwhile for large documents whose root has 
+	 * many children, see {@link ParallelParser}.
+	 */
+	public static Document parseParallel(@Nonnull CharSequence seq) {
+		return new ParallelParser().parse(seq);
+	}
+	
+	public static Document parseParallel(@Nonnull Path path) throws IOException {
+		return parseParallel(path, UTF_8);
+	}
+	
+	/**
+	 * Map the file into memory and parse the root's children concurrently on the common 
+	 * {@link java.util.concurrent.ForkJoinPool}.
+	 */
+	public static Document parseParallel(@Nonnull Path path, @Nonnull Charset charset) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new ParallelParser().parse(channel, charset);
+		} finally {
+			channel.close();
+		}
+	}
+
+	public static CompletableFuture<Document> parseAsync(@Nonnull AsynchronousFileChannel channel) {
+		return parseAsync(channel, UTF_8);
+	}
+	
+	/**
+	 * Parse the file as it is read, with asynchronous reads into pooled direct buffers. See {@link AsyncParser}.
+	 */
+	public static CompletableFuture<Document> parseAsync(@Nonnull AsynchronousFileChannel channel, @Nonnull Charset charset) {
+		return Async.PARSER.parse(channel, charset);
+	}
+	
+	public static CompletableFuture<Document> parseAsync(@Nonnull ReadableByteChannel channel, @Nonnull Executor executor) {
+		return parseAsync(channel, UTF_8, executor);
+	}
+	
+	/**
+	 * Parse channel as it is read, a chunk at a time, on executor. See {@link AsyncParser}.
+	 */
+	public static CompletableFuture<Document> parseAsync(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, @Nonnull Executor executor) {
+		return Async.PARSER.parse(channel, charset, executor);
+	}
+
+	/**
+	 * Return each element at the end of path, /feed/entry, as it is read, the rest of the document 
+	 * is not built. See {@link RecordIterator}.
+	 */
+	public static RecordIterator stream(@Nonnull CharSequence seq, @Nonnull String path) {
+		return new RecordIterator(seq, path);
+	}
+	
+	public static RecordIterator stream(@Nonnull Path file, @Nonnull String path) throws IOException {
+		return stream(file, UTF_8, path);
+	}
+	
+	/**
+	 * The file is read a chunk at a time and closed once the last record has been returned, or 
+	 * when the iterator is closed.
+	 */
+	public static RecordIterator stream(@Nonnull Path file, @Nonnull Charset charset, @Nonnull String path) throws IOException {
+		return new RecordIterator(FileChannel.open(file, StandardOpenOption.READ), charset, path);
+	}
 	
-	public Document parse(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
-		return parse((CharSequence)charset.decode(buffer));
+	/**
+	 * in is closed once the last record has been returned, or when the iterator is closed.
+	 */
+	public static RecordIterator stream(@Nonnull InputStream in, @Nonnull Charset charset, @Nonnull String path) {
+		return new RecordIterator(Channels.newChannel(in), charset, path);
 	}
 
 	public Document build(@Nonnull char[] xml) {
-		return parse((CharSequence)CharBuffer.wrap(xml));
+		return parse(xml, 0, xml.length);
 	}
 	
 	public static DocumentBuilder newDocument() {
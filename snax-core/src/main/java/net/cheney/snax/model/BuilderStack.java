@@ -0,0 +1,55 @@
+package net.cheney.snax.model;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Recycles the {@link Element.Builder}s of documents built one after another, one for each level 
+ * of nesting. An element is given a copy of its builder's content sized to fit, so once a stack 
+ * is as deep as the documents it builds only the nodes of each tree are allocated.
+ * <p>
+ * A stack is used by one parser at a time, see {@link Document#builder(BuilderStack)}.
+ */
+@NotThreadSafe
+public final class BuilderStack {
+
+	// frames[depth] builds the elements at that depth, the root being at depth 1
+	private Element.Builder[] frames = new Element.Builder[16];
+
+	Element.Builder frame(@Nonnull Container.Builder parent, @Nonnull String name, int depth) {
+		if(depth == frames.length) {
+			final Element.Builder[] grown = new Element.Builder[depth << 1];
+			System.arraycopy(frames, 0, grown, 0, depth);
+			frames = grown;
+		}
+		Element.Builder frame = frames[depth];
+		if(frame == null) {
+			frames[depth] = frame = new Element.Builder(parent, name, this, depth);
+		} else {
+			frame.reuse(parent, name);
+		}
+		return frame;
+	}
+
+	/**
+	 * Drop whatever the frames hold of a document that was not finished, so none of it is carried 
+	 * into the next one.
+	 */
+	public void reset() {
+		for(Element.Builder frame : frames) {
+			if(frame != null) {
+				frame.clear();
+			}
+		}
+	}
+
+	/**
+	 * The frame at depth is retained by a {@link LazyElement} to resolve prefixes, along with its 
+	 * ancestors, so new ones are made for the elements that follow.
+	 */
+	void release(int depth) {
+		for(int i = 1 ; i <= depth ; ++i) {
+			frames[i] = null;
+		}
+	}
+}
@@ -12,6 +12,13 @@ public final class Comment extends ValueNode {
 		super(value);
 	}
 
+	/**
+	 * A {@link net.cheney.snax.util.CharSlice} is kept as it is, any other sequence is copied.
+	 */
+	public Comment(@Nonnull CharSequence seq) {
+		super(seq);
+	}
+
 	@Override
 	public Type type() {
 		return Type.COMMENT;
@@ -53,7 +53,15 @@ public abstract class Container extends Node implements Attributed {
 	@Override
 	@SuppressWarnings("unchecked")
 	public final Filter<Attribute> attributes() {
-		return (Filter<Attribute>) children(withAttributePredicate());
+		final Filter<? extends Node> attributes = withAttributePredicate().filter(attributeContent());
+		return (Filter<Attribute>) attributes;
+	}
+	
+	/**
+	 * @return a list that includes every attribute, by default the whole content
+	 */
+	@Nonnull NodeList attributeContent() {
+		return content();
 	}
 	
 	private AttributeTypePredicate withAttributePredicate() {
@@ -78,7 +78,14 @@ public class Document extends Container {
 	} 
 	
 	public static Builder builder() {
-		return new Document.Builder();
+		return new Document.Builder(null);
+	}
+	
+	/**
+	 * Build a document with the element builders of stack.
+	 */
+	public static Builder builder(@Nonnull BuilderStack stack) {
+		return new Document.Builder(stack);
 	}
 	
 	public static class Builder extends Document implements Container.Builder {
@@ -91,8 +98,12 @@ public class Document extends Container {
 			declaredNamespaces.put(Namespace.XMLNS_NAMESPACE.prefix(), Namespace.XMLNS_NAMESPACE);
 		}
 		
-		Builder() {
+		// null unless element builders are reused
+		private final BuilderStack stack;
+		
+		Builder(BuilderStack stack) {
 			super(new NodeList(1));
+			this.stack = stack;
 		}
 		
 		@Override
@@ -120,11 +131,11 @@ public class Document extends Container {
 		}
 		
 		public void doComment(@Nonnull CharSequence seq) {
-			addContent(new Comment(seq.toString()));
+			addContent(new Comment(seq));
 		}
 
 		public Element.Builder doElementStart(@Nonnull CharSequence seq) {
-			return Element.builder(this, seq);
+			return stack == null ? Element.builder(this, seq) : stack.frame(this, seq.toString(), 1);
 		}
 
 		public void doProcessingInstruction(@Nonnull CharSequence seq) {
@@ -141,7 +141,7 @@ public class Element extends Container implements Namespaced {
 	}
 
 	public final String getAttribute(@Nonnull QName qname) {
-		Attribute a = attributes().first();
+		Attribute a = new QNamePredicate<Attribute>(qname).filter(attributes()).first();
 		return a == null ? null : a.value(); 
 	}
 
@@ -163,25 +163,75 @@ public class Element extends Container implements Namespaced {
 		visitor.visit(this);
 	}
 
+	/**
+	 * The attributes of an element, or its content after its attributes, produced when first read.
+	 */
+	public interface Deferred {
+
+		/**
+		 * @param scope resolves the prefixes in scope in the element, null when attributes are 
+		 * loaded for an element whose content is not deferred
+		 */
+		@Nonnull Iterable<? extends Node> load(Container.Builder scope);
+	}
+
 	public static Element.Builder builder(Container.Builder parent, CharSequence seq) {
 		return new Element.Builder(parent, seq.toString());
 	}
 	
 	public static class Builder implements Container.Builder {
 		
-		private final Container.Builder parent;
+		private Container.Builder parent;
 		
 		private final NamespaceMap declaredNamespaces = new NamespaceMap(1);
 		
 		private final NodeList contents = new NodeList(4);
 		
-		private final String name; // unqualified name, possibly containing namespace prefix
+		private String name; // unqualified name, possibly containing namespace prefix
+
+		// the prefix and local part of splitName, which is kept as long as the same name is built
+		private String splitName, prefix, localPart;
 
 		private String attrName;
 
+		private Deferred deferred, deferredAttributes;
+
+		// the stack this builder is reused from, and its depth there, or null
+		private final BuilderStack stack;
+
+		private final int depth;
+
 		Builder(@Nonnull Container.Builder parent, @Nonnull String name) {
+			this(parent, name, null, 0);
+		}
+
+		Builder(@Nonnull Container.Builder parent, @Nonnull String name, BuilderStack stack, int depth) {
 			this.parent = parent;
 			this.name = name;
+			this.stack = stack;
+			this.depth = depth;
+		}
+
+		/**
+		 * Start building a new element.
+		 */
+		void reuse(@Nonnull Container.Builder parent, @Nonnull String name) {
+			clear();
+			this.parent = parent;
+			this.name = name;
+		}
+
+		/**
+		 * Drop the content and state of the element being built, which is left over when a parse 
+		 * fails before its end tag.
+		 */
+		void clear() {
+			this.parent = null;
+			this.attrName = null;
+			this.deferred = null;
+			this.deferredAttributes = null;
+			contents.clear();
+			declaredNamespaces.clear();
 		}
 		
 		@Override
@@ -213,32 +263,64 @@ public class Element extends Container implements Namespaced {
 		}
 		
 		private Node buildElement() {
-			return new Element(contents, qname());
+			if(deferred != null) {
+				// this builder is retained to resolve prefixes, so its frame is not reused
+				if(stack != null) {
+					stack.release(depth);
+				}
+				return new LazyElement(contents, qname(), deferredAttributes, deferred, this);
+			}
+			final NodeList nodes = stack == null ? contents : contents.copy();
+			if(stack != null) {
+				contents.clear();
+			}
+			return deferredAttributes == null ? new Element(nodes, qname()) : new LazyElement(nodes, qname(), deferredAttributes, null, null);
+		}
+
+		/**
+		 * Build an element whose attributes, other than the namespace declarations, are loaded by 
+		 * deferred the first time they or the content are read. Attribute names are not resolved 
+		 * against namespaces, so unless the content is deferred too this builder is not retained.
+		 */
+		public void doDeferredAttributes(@Nonnull Deferred deferred) {
+			this.deferredAttributes = deferred;
+		}
+
+		/**
+		 * Build an element whose content after the attributes added so far is loaded by deferred 
+		 * the first time it is read. This builder is retained until then to resolve prefixes.
+		 */
+		public void doDeferredContent(@Nonnull Deferred deferred) {
+			this.deferred = deferred;
 		}
 
 		private QName qname() {
-			final int index = name.indexOf(':');
-			if(index > -1) {
-				final String prefix = name.substring(0, index);
-				final String localPart = name.substring(index + 1);
-				return QName.valueOf(declaredNamespaceForPrefix(prefix), localPart);
-			} else {
-				// TODO, should call declaredNamespace to get the default namespace
-				return QName.valueOf(declaredNamespaceForPrefix(BLANK_PREFIX), name);
+			if(name != splitName) {
+				final int index = name.indexOf(':');
+				if(index > -1) {
+					prefix = name.substring(0, index);
+					localPart = name.substring(index + 1);
+				} else {
+					// TODO, should call declaredNamespace to get the default namespace
+					prefix = BLANK_PREFIX;
+					localPart = name;
+				}
+				splitName = name;
 			}
+			return QName.valueOf(declaredNamespaceForPrefix(prefix), localPart);
 		}
 
 		@Override
 		public void doCharacters(@Nonnull CharSequence seq) {
-			addContent(new Text(seq.toString()));		
+			addContent(new Text(seq));		
 		}
 		
 		public void doComment(@Nonnull CharSequence seq) {
-			addContent(new Comment(seq.toString()));
+			addContent(new Comment(seq));
 		}
 
 		public Element.Builder doElementStart(@Nonnull CharSequence seq) {
-			return Element.builder(this, seq);
+			return stack == null ? Element.builder(this, seq) : stack.frame(this, seq.toString(), depth + 1);
 		}
 
 		public void doProcessingInstruction(@Nonnull CharSequence seq) {
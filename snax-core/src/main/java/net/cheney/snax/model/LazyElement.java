@@ -0,0 +1,86 @@
+package net.cheney.snax.model;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An {@link Element} whose attributes, or whose content after its attributes, or both, are loaded
+ * the first time they are read, see {@link Element.Builder#doDeferredAttributes(Element.Deferred)}
+ * and {@link Element.Builder#doDeferredContent(Element.Deferred)}.
+ */
+@ThreadSafe
+final class LazyElement extends Element {
+
+	// the nodes the builder added, the attributes unless they are deferred then the rest of the content unless it is deferred
+	private final NodeList built;
+
+	private volatile NodeList attributes, content;
+
+	// each released once it is loaded
+	private Deferred deferredAttributes, deferredContent;
+
+	// null unless the content is deferred
+	private Container.Builder scope;
+
+	LazyElement(@Nonnull NodeList built, @Nonnull QName qname, Deferred deferredAttributes, Deferred deferredContent, Container.Builder scope) {
+		super(built, qname);
+		this.built = built;
+		this.deferredAttributes = deferredAttributes;
+		this.deferredContent = deferredContent;
+		this.scope = scope;
+	}
+
+	@Override
+	protected NodeList content() {
+		NodeList content = this.content;
+		if(content == null) {
+			synchronized (this) {
+				content = this.content;
+				if(content == null) {
+					final NodeList attributes = attributeContent();
+					content = new NodeList(built.length + 4);
+					if(attributes != built) {
+						for(Node attribute : attributes) {
+							content.add(attribute);
+						}
+					}
+					for(Node node : built) {
+						content.add(node);
+					}
+					if(deferredContent != null) {
+						for(Node node : deferredContent.load(scope)) {
+							content.add(node);
+						}
+					}
+					this.content = content;
+					this.deferredContent = null;
+					this.scope = null;
+				}
+			}
+		}
+		return content;
+	}
+
+	@Override
+	NodeList attributeContent() {
+		NodeList attributes = this.attributes;
+		if(attributes == null) {
+			synchronized (this) {
+				attributes = this.attributes;
+				if(attributes == null) {
+					if(deferredAttributes == null) {
+						attributes = built;
+					} else {
+						attributes = new NodeList(4);
+						for(Node attribute : deferredAttributes.load(scope)) {
+							attributes.add(attribute);
+						}
+					}
+					this.attributes = attributes;
+					this.deferredAttributes = null;
+				}
+			}
+		}
+		return attributes;
+	}
+}
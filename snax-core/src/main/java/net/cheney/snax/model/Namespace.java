@@ -3,22 +3,35 @@ package net.cheney.snax.model;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+/**
+ * Namespaces are interned, {@link #valueOf(String, String)} returns the same instance for the 
+ * same prefix and uri so most comparisons are a reference compare. The pool holds them weakly, 
+ * so it is no larger than the namespaces still in use however many a process has seen.
+ */
 @Immutable
 public final class Namespace  {
 	
 	public static final String BLANK_URI = "";
 	public static final String BLANK_PREFIX = "";
+	
+	// interned namespaces by prefix and uri
+	static final WeakInterner<Key, Namespace> INTERNED = new WeakInterner<Key, Namespace>(64);
 
-	public static final Namespace NO_NAMESPACE = new Namespace(BLANK_PREFIX, BLANK_URI);
-	public static final Namespace XML_NAMESPACE = new Namespace("xml", "http://www.w3.org/XML/1998/namespace");
-	public static final Namespace XMLNS_NAMESPACE = new Namespace("xmlns", "http://www.w3.org/2000/xmlns/");
+	public static final Namespace NO_NAMESPACE = valueOf(BLANK_PREFIX, BLANK_URI);
+	public static final Namespace XML_NAMESPACE = valueOf("xml", "http://www.w3.org/XML/1998/namespace");
+	public static final Namespace XMLNS_NAMESPACE = valueOf("xmlns", "http://www.w3.org/2000/xmlns/");
 
 	private final String uri;
 	private final String prefix;
+	private final int hash;
+	
+	// the interned QNames in this namespace by local part
+	private final WeakInterner<String, QName> qnames = new WeakInterner<String, QName>(16);
 
 	private Namespace(@Nonnull String prefix, @Nonnull String uri) {
 		this.prefix = prefix;
 		this.uri = uri;
+		this.hash = uri.hashCode();
 	}
 
 	public static Namespace valueOf(@Nonnull String prefix, @Nonnull String uri) {
@@ -26,7 +39,20 @@ public final class Namespace  {
 		if(!prefix.isEmpty() && uri.isEmpty()) {
 			throw new IllegalArgumentException();
 		}
-		return new Namespace(prefix, uri);
+		return intern(prefix, uri);
+	}
+
+	public static Namespace valueOf(@Nonnull String prefix) {
+		return intern(prefix, BLANK_URI);
+	}
+	
+	private static Namespace intern(@Nonnull String prefix, @Nonnull String uri) {
+		final Key key = new Key(prefix, uri);
+		final Namespace ns = INTERNED.get(key);
+		if(ns != null) {
+			return ns;
+		}
+		return INTERNED.intern(key, new Namespace(prefix, uri));
 	}
 
 	public String prefix() {
@@ -36,22 +62,46 @@ public final class Namespace  {
 	public String uri() {
 		return uri;
 	}
+	
+	WeakInterner<String, QName> qnames() {
+		return qnames;
+	}
 
 	@Override
 	public boolean equals(Object that) {
+		if(this == that) {
+			return true;
+		}
 		if(that instanceof Namespace) {
-			return this.uri.equals(((Namespace)that).uri);
+			return this.hash == ((Namespace)that).hash && this.uri.equals(((Namespace)that).uri);
 		}
 		return false;
 	}
 
 	@Override
 	public int hashCode() {
-		return uri.hashCode();
+		return hash;
 	}
 
-	public static Namespace valueOf(@Nonnull String prefix) {
-		return new Namespace(prefix, BLANK_URI);
+	// a namespace is interned by its prefix as well, which equals ignores
+	private static final class Key {
+
+		private final String prefix, uri;
+
+		Key(@Nonnull String prefix, @Nonnull String uri) {
+			this.prefix = prefix;
+			this.uri = uri;
+		}
+
+		@Override
+		public boolean equals(Object that) {
+			return that instanceof Key && prefix.equals(((Key) that).prefix) && uri.equals(((Key) that).uri);
+		}
+
+		@Override
+		public int hashCode() {
+			return prefix.hashCode() * 31 + uri.hashCode();
+		}
 	}
 	
 }
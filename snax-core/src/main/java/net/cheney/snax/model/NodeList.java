@@ -2,6 +2,8 @@ package net.cheney.snax.model;
 
 import static java.lang.System.arraycopy;
 
+import java.util.Arrays;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
@@ -76,6 +78,18 @@ public final class NodeList implements Iterable<Node> {
 	}
 	
 
+	/**
+	 * @return a copy sized to fit
+	 */
+	NodeList copy() {
+		return new NodeList(elements, length);
+	}
+	
+	void clear() {
+		Arrays.fill(elements, 0, length, null);
+		length = 0;
+	}
+
 	public void add(Node content) {
 		ensureCapacity();
 		elements[length++] = content;
@@ -36,6 +36,19 @@ public final class ProcessingInstruction extends Node {
 		return this;
 	}
 
+	@Override
+	public boolean equals(Object that) {
+		if(that instanceof ProcessingInstruction) {
+			return this.target.equals(((ProcessingInstruction) that).target) && this.data.equals(((ProcessingInstruction) that).data);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return target.hashCode() ^ data.hashCode();
+	}
+
 	@Override
 	public void accept(@Nonnull Visitor visitor) throws IOException {
 		visitor.visit(this);
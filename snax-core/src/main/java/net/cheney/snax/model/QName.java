@@ -3,23 +3,40 @@ package net.cheney.snax.model;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+/**
+ * QNames are interned, {@link #valueOf(Namespace, String)} returns the same instance for the 
+ * same {@link Namespace} and local part so matching names is usually a reference compare. Each 
+ * namespace holds its QNames weakly, so names no longer in use are dropped from the pool, and 
+ * a document with many distinct names costs nothing once it is gone.
+ */
 @Immutable
 public final class QName {
-
+	
 	private final String localpart;
 	private final Namespace namespace;
+	private final int hash;
 
 	public static QName valueOf(@Nonnull String localPart) {
-		return new QName(Namespace.NO_NAMESPACE, localPart);
+		return valueOf(Namespace.NO_NAMESPACE, localPart);
 	}
 	
 	public static QName valueOf(@Nonnull Namespace namespace, @Nonnull String localPart) {
-		return new QName(namespace, localPart);
+		// namespace is null if the name's prefix was not declared
+		if(namespace == null) {
+			return new QName(namespace, localPart);
+		}
+		final WeakInterner<String, QName> qnames = namespace.qnames();
+		final QName qname = qnames.get(localPart);
+		if(qname != null) {
+			return qname;
+		}
+		return qnames.intern(localPart, new QName(namespace, localPart));
 	}
 	
 	private QName(@Nonnull Namespace namespace, @Nonnull String localPart) {
 		this.namespace = namespace;
 		this.localpart = localPart;
+		this.hash = namespace == null ? localPart.hashCode() : localPart.hashCode() ^ namespace.hashCode();
 	}
 
 	public String localpart() {
@@ -28,17 +45,20 @@ public final class QName {
 	
 	@Override
 	public boolean equals(Object that) {
-        if (that instanceof QName) {
-
-        return namespace.equals(((QName) that).namespace)
-            && localpart.equals(((QName) that).localpart);
-        } 
-        return false;
+		if (this == that) {
+			return true;
+		}
+		if (that instanceof QName) {
+			return hash == ((QName) that).hash
+				&& localpart.equals(((QName) that).localpart)
+				&& namespace.equals(((QName) that).namespace);
+		} 
+		return false;
 	}
 	
 	@Override
 	public int hashCode() {
-		return localpart.hashCode() ^ namespace.hashCode();
+		return hash;
 	}
 	
 	@Override
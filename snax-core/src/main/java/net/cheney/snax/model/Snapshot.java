@@ -0,0 +1,371 @@
+package net.cheney.snax.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A compact binary form of a {@link Document}, which is loaded back without parsing any XML. A
+ * snapshot is a header, a table of the namespaces and of the names used, then the nodes of the
+ * document in document order:
+ * <pre>
+ * snapshot  := 'S' 'N' 'A' 'X' version namespaces names content
+ * namespaces:= count (string prefix, string uri)*
+ * names     := count (index namespace + 1 or 0 for none, string localpart)*
+ * content   := count node*
+ * node      := ELEMENT index name content | ATTRIBUTE index name string value
+ *            | TEXT string | COMMENT string | PROCESSING_INSTRUCTION string target string data
+ * string    := length UTF-8 bytes
+ * </pre>
+ * Counts, indices and lengths are unsigned varints, seven bits a byte, low bits first. A loaded
+ * document is equal to the one written, and keeps its prefixes, its names are interned as if it
+ * had been parsed.
+ */
+public final class Snapshot {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final byte[] MAGIC = { 'S', 'N', 'A', 'X' };
+
+	private static final int VERSION = 1;
+
+	private static final int ELEMENT = 1, ATTRIBUTE = 2, TEXT = 3, COMMENT = 4, PROCESSING_INSTRUCTION = 5;
+
+	private Snapshot() {
+		// static methods only
+	}
+
+	public static void write(@Nonnull Document document, @Nonnull OutputStream out) throws IOException {
+		new Writer().write(document, out);
+	}
+
+	public static void write(@Nonnull Document document, @Nonnull Path path) throws IOException {
+		final OutputStream out = Files.newOutputStream(path);
+		try {
+			write(document, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public static byte[] toByteArray(@Nonnull Document document) {
+		final Writer writer = new Writer();
+		final Output out = new Output(256);
+		writer.write(document, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Load the snapshot at the position of buffer, which is moved past it.
+	 *
+	 * @throws IllegalArgumentException if buffer does not hold a snapshot, or only part of one
+	 */
+	public static Document read(@Nonnull ByteBuffer buffer) {
+		final Reader reader;
+		if(buffer.hasArray()) {
+			reader = new Reader(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+		} else {
+			final byte[] bytes = new byte[buffer.remaining()];
+			buffer.duplicate().get(bytes);
+			reader = new Reader(bytes, 0, bytes.length);
+		}
+		final int from = reader.position;
+		final Document document = reader.read();
+		buffer.position(buffer.position() + reader.position - from);
+		return document;
+	}
+
+	public static Document read(@Nonnull byte[] bytes) {
+		return read(ByteBuffer.wrap(bytes));
+	}
+
+	public static Document read(@Nonnull Path path) throws IOException {
+		return read(Files.readAllBytes(path));
+	}
+
+	/**
+	 * Collects the names of a document as its nodes are written, the table is written ahead of them
+	 * once they have all been seen.
+	 */
+	private static final class Writer {
+
+		// by identity, equal names may differ in prefix, the names of a parsed document are interned
+		private final Map<Namespace, Integer> namespaces = new IdentityHashMap<Namespace, Integer>();
+
+		private final Map<QName, Integer> names = new IdentityHashMap<QName, Integer>();
+
+		private final List<QName> qnames = new ArrayList<QName>();
+
+		void write(@Nonnull Document document, @Nonnull OutputStream out) throws IOException {
+			final Output snapshot = new Output(256);
+			write(document, snapshot);
+			snapshot.writeTo(out);
+		}
+
+		void write(@Nonnull Document document, @Nonnull Output out) {
+			final Output nodes = new Output(4096);
+			content(document.content(), nodes);
+			out.write(MAGIC);
+			out.write(VERSION);
+			final Namespace[] byIndex = new Namespace[namespaces.size()];
+			for(Map.Entry<Namespace, Integer> e : namespaces.entrySet()) {
+				byIndex[e.getValue()] = e.getKey();
+			}
+			out.writeVarint(byIndex.length);
+			for(Namespace namespace : byIndex) {
+				out.writeString(namespace.prefix());
+				out.writeString(namespace.uri());
+			}
+			out.writeVarint(qnames.size());
+			for(QName qname : qnames) {
+				out.writeVarint(qname.namespace() == null ? 0 : namespaces.get(qname.namespace()) + 1);
+				out.writeString(qname.localpart());
+			}
+			out.write(nodes);
+		}
+
+		private void content(@Nonnull NodeList content, @Nonnull Output out) {
+			out.writeVarint(content.length);
+			for(int i = 0 ; i < content.length ; ++i) {
+				node(content.elements[i], out);
+			}
+		}
+
+		private void node(@Nonnull Node node, @Nonnull Output out) {
+			switch(node.type()) {
+			case ELEMENT:
+				final Element element = (Element) node;
+				out.write(ELEMENT);
+				out.writeVarint(index(element.qname()));
+				content(element.content(), out);
+				break;
+			case ATTRIBUTE:
+				final Attribute attribute = (Attribute) node;
+				out.write(ATTRIBUTE);
+				out.writeVarint(index(attribute.qname()));
+				out.writeString(attribute.value());
+				break;
+			case TEXT:
+				out.write(TEXT);
+				out.writeString(((Text) node).value());
+				break;
+			case COMMENT:
+				out.write(COMMENT);
+				out.writeString(((Comment) node).value());
+				break;
+			case PROCESSING_INSTRUCTION:
+				final ProcessingInstruction pi = (ProcessingInstruction) node;
+				out.write(PROCESSING_INSTRUCTION);
+				out.writeString(pi.target());
+				out.writeString(pi.data());
+				break;
+			default:
+				throw new IllegalArgumentException(String.format("Unable to write node [%s] of type %s", node, node.type()));
+			}
+		}
+
+		private int index(@Nonnull QName qname) {
+			final Integer index = names.get(qname);
+			if(index != null) {
+				return index;
+			}
+			if(qname.namespace() != null && !namespaces.containsKey(qname.namespace())) {
+				namespaces.put(qname.namespace(), namespaces.size());
+			}
+			names.put(qname, qnames.size());
+			qnames.add(qname);
+			return qnames.size() - 1;
+		}
+	}
+
+	private static final class Output {
+
+		private byte[] bytes;
+
+		private int length;
+
+		Output(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		void write(int b) {
+			ensureCapacity(1);
+			bytes[length++] = (byte) b;
+		}
+
+		void write(@Nonnull byte[] b) {
+			ensureCapacity(b.length);
+			System.arraycopy(b, 0, bytes, length, b.length);
+			length += b.length;
+		}
+
+		void write(@Nonnull Output out) {
+			ensureCapacity(out.length);
+			System.arraycopy(out.bytes, 0, bytes, length, out.length);
+			length += out.length;
+		}
+
+		void writeVarint(int value) {
+			ensureCapacity(5);
+			while((value & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+
+		void writeString(@Nonnull String s) {
+			final byte[] b = s.getBytes(UTF_8);
+			writeVarint(b.length);
+			write(b);
+		}
+
+		void writeTo(@Nonnull OutputStream out) throws IOException {
+			out.write(bytes, 0, length);
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+
+		private void ensureCapacity(int n) {
+			if(length + n > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + n));
+			}
+		}
+	}
+
+	/**
+	 * Reads the nodes of a snapshot straight into the lists of their parents, which are sized from
+	 * the counts written ahead of them.
+	 */
+	private static final class Reader {
+
+		private final byte[] bytes;
+
+		private final int limit;
+
+		int position;
+
+		private QName[] qnames;
+
+		Reader(@Nonnull byte[] bytes, int position, int limit) {
+			this.bytes = bytes;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		Document read() {
+			try {
+				for(int i = 0 ; i < MAGIC.length ; ++i) {
+					if(readByte() != MAGIC[i]) {
+						throw new IllegalArgumentException("Not a snapshot");
+					}
+				}
+				final int version = readByte();
+				if(version != VERSION) {
+					throw new IllegalArgumentException(String.format("Unsupported snapshot version %d", version));
+				}
+				final Namespace[] namespaces = new Namespace[readCount()];
+				for(int i = 0 ; i < namespaces.length ; ++i) {
+					final String prefix = readString(), uri = readString();
+					// valueOf(prefix, uri) refuses a prefix bound to no uri, which valueOf(prefix) makes
+					namespaces[i] = uri.isEmpty() ? Namespace.valueOf(prefix) : Namespace.valueOf(prefix, uri);
+				}
+				qnames = new QName[readCount()];
+				for(int i = 0 ; i < qnames.length ; ++i) {
+					final int namespace = readVarint();
+					qnames[i] = QName.valueOf(namespace == 0 ? null : namespaces[namespace - 1], readString());
+				}
+				return new Document(readContent());
+			} catch (IndexOutOfBoundsException e) {
+				throw new IllegalArgumentException("Corrupt snapshot", e);
+			} catch (BufferUnderflowException e) {
+				throw new IllegalArgumentException("Truncated snapshot", e);
+			}
+		}
+
+		private NodeList readContent() {
+			final int count = readCount();
+			final NodeList content = new NodeList(count);
+			final Node[] elements = content.elements;
+			for(int i = 0 ; i < count ; ++i) {
+				elements[i] = readNode();
+			}
+			content.length = count;
+			return content;
+		}
+
+		private Node readNode() {
+			final int type = readByte();
+			switch(type) {
+			case ELEMENT:
+				final QName qname = qnames[readVarint()];
+				return new Element(readContent(), qname);
+			case ATTRIBUTE:
+				return new Attribute(qnames[readVarint()], readString());
+			case TEXT:
+				return new Text(readString());
+			case COMMENT:
+				return new Comment(readString());
+			case PROCESSING_INSTRUCTION:
+				return new ProcessingInstruction(readString(), readString());
+			default:
+				throw new IllegalArgumentException(String.format("Corrupt snapshot, unknown node type %d at %d", type, position - 1));
+			}
+		}
+
+		private int readByte() {
+			if(position == limit) {
+				throw new BufferUnderflowException();
+			}
+			return bytes[position++];
+		}
+
+		private int readVarint() {
+			int b = readByte();
+			if(b >= 0) {
+				return b;
+			}
+			int value = b & 0x7F;
+			for(int shift = 7 ; shift < 35 ; shift += 7) {
+				b = readByte();
+				value |= (b & 0x7F) << shift;
+				if(b >= 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException(String.format("Corrupt snapshot, invalid varint at %d", position));
+		}
+
+		// a count of items that each take at least a byte, so a corrupt one cannot size a huge list
+		private int readCount() {
+			final int count = readVarint();
+			if(count < 0 || count > limit - position) {
+				throw new BufferUnderflowException();
+			}
+			return count;
+		}
+
+		private String readString() {
+			final int length = readCount();
+			if(length == 0) {
+				return "";
+			}
+			final String s = new String(bytes, position, length, UTF_8);
+			position += length;
+			return s;
+		}
+	}
+}
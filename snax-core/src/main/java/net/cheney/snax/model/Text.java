@@ -16,6 +16,13 @@ public final class Text extends ValueNode {
 		super(string);
 	}
 
+	/**
+	 * A {@link net.cheney.snax.util.CharSlice} is kept as it is, any other sequence is copied.
+	 */
+	public Text(@Nonnull CharSequence seq) {
+		super(seq);
+	}
+
 	@Override
 	public Type type() {
 		return Node.Type.TEXT;
@@ -3,22 +3,25 @@ package net.cheney.snax.model;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.Immutable;
 
+import net.cheney.snax.util.CharSlice;
+
 @Immutable
 abstract class ValueNode extends Node {
 
-	private final String value;
+	// a String, or a CharSlice that becomes one when the value is first asked for
+	private final CharSequence value;
 
 	ValueNode(@Nonnull CharSequence value) {
-		this.value = value.toString();
+		this.value = value instanceof CharSlice ? value : value.toString();
 	}
 	
 	public final String value() {
-		return this.value;
+		return this.value.toString();
 	}
 	
 	@Override
 	public int hashCode() {
-		return this.value.hashCode();
+		return value().hashCode();
 	}
 
 }
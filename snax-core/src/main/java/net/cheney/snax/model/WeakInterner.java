@@ -0,0 +1,82 @@
+package net.cheney.snax.model;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Canonical instances by key, held weakly so an instance nothing else refers to is collected and
+ * its entry dropped. There is no bound on the instances held, the pool only ever holds the ones
+ * still in use.
+ */
+@ThreadSafe
+final class WeakInterner<K, V> {
+
+	private final ConcurrentMap<K, Entry<K, V>> entries;
+
+	// the entries whose instance has been collected
+	private final ReferenceQueue<V> collected = new ReferenceQueue<V>();
+
+	WeakInterner(int capacity) {
+		this.entries = new ConcurrentHashMap<K, Entry<K, V>>(capacity);
+	}
+
+	/**
+	 * @return the instance interned for key, or null if there is none
+	 */
+	V get(@Nonnull K key) {
+		final Entry<K, V> entry = entries.get(key);
+		return entry == null ? null : entry.get();
+	}
+
+	/**
+	 * @return the instance interned for key, value if it is the first
+	 */
+	V intern(@Nonnull K key, @Nonnull V value) {
+		expunge();
+		final Entry<K, V> entry = new Entry<K, V>(key, value, collected);
+		for( ; ; ) {
+			final Entry<K, V> existing = entries.putIfAbsent(key, entry);
+			if(existing == null) {
+				return value;
+			}
+			final V interned = existing.get();
+			if(interned != null) {
+				return interned;
+			}
+			// collected but not yet expunged
+			if(entries.replace(key, existing, entry)) {
+				return value;
+			}
+		}
+	}
+
+	int size() {
+		expunge();
+		return entries.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expunge() {
+		for(Reference<? extends V> ref ; (ref = collected.poll()) != null ; ) {
+			final Entry<K, V> entry = (Entry<K, V>) ref;
+			// by identity, the key may have been interned again since
+			entries.remove(entry.key, entry);
+		}
+	}
+
+	private static final class Entry<K, V> extends WeakReference<V> {
+
+		final K key;
+
+		Entry(@Nonnull K key, @Nonnull V value, @Nonnull ReferenceQueue<V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+	}
+}
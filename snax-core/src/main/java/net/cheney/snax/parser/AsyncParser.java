@@ -0,0 +1,190 @@
+package net.cheney.snax.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.cheney.snax.model.Document;
+
+/**
+ * Parses documents as they are read. Each chunk is fed to an {@link XMLParser} as its read 
+ * completes and the next read is started, so no thread waits on the input between chunks. 
+ * Chunks are read into direct buffers taken from a pool shared by every parse, a buffer is 
+ * returned to the pool when its parse completes.
+ * <p>
+ * The channel is not closed. Cancelling the future stops the parse after the read in progress.
+ */
+@ThreadSafe
+public final class AsyncParser {
+
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	// buffers kept for parses to come, the rest are left to the garbage collector
+	private static final int MAX_POOLED = 64;
+
+	private final BufferPool buffers;
+
+	public AsyncParser() {
+		this(BUFFER_SIZE);
+	}
+
+	AsyncParser(int bufferSize) {
+		this.buffers = new BufferPool(bufferSize, MAX_POOLED);
+	}
+
+	/**
+	 * Read channel from its start with asynchronous reads, each chunk is parsed on the thread 
+	 * that completes its read.
+	 *
+	 * @return a future completed with the document, or with the exception that ended the parse
+	 */
+	public CompletableFuture<Document> parse(@Nonnull AsynchronousFileChannel channel, @Nonnull Charset charset) {
+		final FileRead read = new FileRead(channel, charset);
+		read.read();
+		return read.future;
+	}
+
+	/**
+	 * Read channel on executor, a chunk at a time. Each read and parse is a task of its own, so 
+	 * many channels share the executor's threads, but a blocking channel holds a thread for as 
+	 * long as each read takes.
+	 *
+	 * @return a future completed with the document, or with the exception that ended the parse
+	 */
+	public CompletableFuture<Document> parse(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, @Nonnull Executor executor) {
+		final ChannelRead read = new ChannelRead(channel, charset, executor);
+		read.next();
+		return read.future;
+	}
+
+	BufferPool buffers() {
+		return buffers;
+	}
+
+	private abstract class Read {
+
+		final CompletableFuture<Document> future = new CompletableFuture<Document>();
+
+		final XMLParser parser;
+
+		final ByteBuffer buffer = buffers.acquire();
+
+		Read(@Nonnull Charset charset) {
+			this.parser = new XMLParser(charset);
+		}
+
+		/**
+		 * Parse the bytes read into buffer, or finish the document if the input has ended.
+		 *
+		 * @return true if the next chunk should be read
+		 */
+		final boolean parse(int read) {
+			if(future.isDone()) {
+				// cancelled
+				buffers.release(buffer);
+				return false;
+			}
+			try {
+				if(read < 0) {
+					parser.endOfInput();
+					buffers.release(buffer);
+					future.complete(parser.document());
+					return false;
+				}
+				buffer.flip();
+				parser.feed(buffer);
+				buffer.clear();
+				return true;
+			} catch (RuntimeException e) {
+				fail(e);
+				return false;
+			}
+		}
+
+		final void fail(@Nonnull Throwable t) {
+			buffers.release(buffer);
+			future.completeExceptionally(t);
+		}
+	}
+
+	private final class FileRead extends Read implements CompletionHandler<Integer, Void> {
+
+		private final AsynchronousFileChannel channel;
+
+		private long position;
+
+		FileRead(@Nonnull AsynchronousFileChannel channel, @Nonnull Charset charset) {
+			super(charset);
+			this.channel = channel;
+		}
+
+		void read() {
+			try {
+				channel.read(buffer, position, null, this);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void completed(Integer read, Void attachment) {
+			if(read > 0) {
+				position += read;
+			}
+			if(parse(read)) {
+				read();
+			}
+		}
+
+		@Override
+		public void failed(Throwable t, Void attachment) {
+			fail(t);
+		}
+	}
+
+	private final class ChannelRead extends Read implements Runnable {
+
+		private final ReadableByteChannel channel;
+
+		private final Executor executor;
+
+		ChannelRead(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, @Nonnull Executor executor) {
+			super(charset);
+			this.channel = channel;
+			this.executor = executor;
+		}
+
+		void next() {
+			try {
+				executor.execute(this);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void run() {
+			final int read;
+			try {
+				read = channel.read(buffer);
+			} catch (IOException e) {
+				fail(e);
+				return;
+			} catch (RuntimeException e) {
+				fail(e);
+				return;
+			}
+			if(parse(read)) {
+				next();
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Direct buffers of one size, shared without locking. A buffer that is released when the pool 
+ * already holds its maximum is left to the garbage collector.
+ */
+@ThreadSafe
+final class BufferPool {
+
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	private final int bufferSize, maxPooled;
+
+	BufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return a cleared buffer
+	 */
+	ByteBuffer acquire() {
+		final ByteBuffer buffer = buffers.poll();
+		if(buffer == null) {
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	void release(@Nonnull ByteBuffer buffer) {
+		if(pooled.incrementAndGet() <= maxPooled) {
+			buffers.offer(buffer);
+		} else {
+			pooled.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the number of buffers held
+	 */
+	int size() {
+		return pooled.get();
+	}
+}
@@ -0,0 +1,186 @@
+package net.cheney.snax.parser;
+
+import java.nio.CharBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.model.BuilderStack;
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.util.CharSlice;
+
+/**
+ * Builds a {@link Document} by passing each event to the current {@link Container.Builder}. 
+ * This is the handler {@link XMLParser#XMLParser()} uses.
+ */
+public final class BuilderHandler implements ParseHandler {
+
+	// null if the events are added to a builder the caller supplied
+	private Document.Builder document;
+	
+	// null unless element builders are reused from one document to the next
+	private final BuilderStack stack;
+	
+	private Container.Builder builder;
+	
+	// shared by every handler that is not given its own
+	static final SymbolTable SYMBOLS = new SymbolTable();
+	
+	private final SymbolTable symbols;
+	
+	// values that are views of source are kept as CharSlices rather than copied
+	private final CharSequence source;
+	
+	public BuilderHandler() {
+		this(SYMBOLS, null, null);
+	}
+	
+	/**
+	 * @param symbols the table element and attribute names are looked up in
+	 */
+	public BuilderHandler(@Nonnull SymbolTable symbols) {
+		this(symbols, null, null);
+	}
+	
+	/**
+	 * Build a lazy document, text, comments and attribute values that lie in source are not copied 
+	 * until they are first read. The document retains source, which must not be modified while the 
+	 * document is in use.
+	 */
+	public BuilderHandler(@Nonnull CharSequence source) {
+		this(SYMBOLS, source, null);
+	}
+	
+	/**
+	 * Build each document with the element builders of stack, call {@link #reset()} before 
+	 * each document after the first.
+	 */
+	public BuilderHandler(@Nonnull BuilderStack stack) {
+		this(SYMBOLS, null, stack);
+	}
+	
+	private BuilderHandler(@Nonnull SymbolTable symbols, CharSequence source, BuilderStack stack) {
+		this.stack = stack;
+		this.document = stack == null ? Document.builder() : Document.builder(stack);
+		this.builder = document;
+		this.symbols = symbols;
+		this.source = source;
+	}
+	
+	/**
+	 * Add the top level nodes to builder rather than to a new {@link Document}.
+	 */
+	BuilderHandler(@Nonnull Container.Builder builder) {
+		this(builder, null);
+	}
+	
+	BuilderHandler(@Nonnull Container.Builder builder, CharSequence source) {
+		this.document = null;
+		this.stack = null;
+		this.builder = builder;
+		this.symbols = SYMBOLS;
+		this.source = source;
+	}
+
+	@Override
+	public void startElement(@Nonnull CharSequence seq, int offset, int length) {
+		builder = builder.doElementStart(symbols.symbol(seq, offset, length));
+	}
+
+	@Override
+	public void attributeName(@Nonnull CharSequence seq, int offset, int length) {
+		builder.doAttributeName(symbols.symbol(seq, offset, length));
+	}
+
+	@Override
+	public void attributeValue(@Nonnull CharSequence seq, int offset, int length) {
+		builder.doAttributeValue(value(seq, offset, length));
+	}
+
+	@Override
+	public void endAttributes() {
+		// attributes are added to the element as they arrive
+	}
+
+	@Override
+	public void endElement() {
+		builder = builder.doElementEnd();
+	}
+
+	@Override
+	public void characters(@Nonnull CharSequence seq, int offset, int length) {
+		builder.doCharacters(value(seq, offset, length));
+	}
+
+	@Override
+	public void comment(@Nonnull CharSequence seq, int offset, int length) {
+		// a parsed document holds no comments
+	}
+
+	@Override
+	public void processingInstruction(@Nonnull CharSequence seq, int offset, int length) {
+		builder.doProcessingInstruction(copy(seq, offset, length));
+	}
+
+	/**
+	 * The content of the current element, between from and the &lt; of its end tag, is parsed 
+	 * when it is first read, deferring the attributes of its elements too if lazyAttributes is set.
+	 */
+	void deferContent(@Nonnull CharSequence seq, int from, int to, boolean lazyAttributes) {
+		((Element.Builder) builder).doDeferredContent(new DeferredContent(seq, from, to, lazyAttributes));
+	}
+
+	/**
+	 * The attributes of the current element, between from and the end of its start tag, are 
+	 * tokenized when they are first read.
+	 */
+	void deferAttributes(@Nonnull CharSequence seq, int from, int to) {
+		((Element.Builder) builder).doDeferredAttributes(new DeferredAttributes(seq, from, to));
+	}
+	
+	/**
+	 * Start building a new document, the last one is left as it is.
+	 * 
+	 * @throws IllegalStateException if this handler adds to a builder the caller supplied
+	 */
+	public void reset() {
+		if(document == null) {
+			throw new IllegalStateException("This handler does not build a Document");
+		}
+		if(stack != null) {
+			// the frames of a parse that failed still hold its partial elements
+			stack.reset();
+		}
+		document = stack == null ? Document.builder() : Document.builder(stack);
+		builder = document;
+	}
+	
+	public Document document() {
+		if(document == null) {
+			throw new IllegalStateException("This handler does not build a Document");
+		}
+		return document.build();
+	}
+	
+	/**
+	 * @return the builder of the innermost open element, or of the document
+	 */
+	Container.Builder builder() {
+		return builder;
+	}
+	
+	private CharSequence value(@Nonnull CharSequence seq, int offset, int length) {
+		// other views are of the parser's buffers, which are reused
+		return seq == source ? new CharSlice(source, offset, length) : copy(seq, offset, length);
+	}
+	
+	private static CharSequence copy(@Nonnull CharSequence seq, int offset, int length) {
+		if(seq instanceof CharBuffer && ((CharBuffer) seq).hasArray()) {
+			// straight from the array rather than through a view and its toString
+			final CharBuffer buffer = (CharBuffer) seq;
+			return new String(buffer.array(), buffer.arrayOffset() + buffer.position() + offset, length);
+		}
+		return seq.subSequence(offset, offset + length);
+	}
+}
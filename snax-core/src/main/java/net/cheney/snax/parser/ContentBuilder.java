@@ -0,0 +1,75 @@
+package net.cheney.snax.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.model.Comment;
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.Node;
+import net.cheney.snax.model.ProcessingInstruction;
+import net.cheney.snax.model.Text;
+
+/**
+ * Collects the nodes of part of an element's content that is parsed on its own. Prefixes are
+ * resolved by the builder of the element the content belongs to, which must not change while the
+ * content is parsed.
+ */
+final class ContentBuilder implements Container.Builder {
+
+	private final Container.Builder scope;
+
+	final List<Node> nodes = new ArrayList<Node>();
+
+	ContentBuilder(@Nonnull Container.Builder scope) {
+		this.scope = scope;
+	}
+
+	@Override
+	public void doAttributeName(@Nonnull CharSequence seq) {
+		throw new IllegalStateException(String.format("Unable to add attribute name [%s]", seq));
+	}
+
+	@Override
+	public void doAttributeValue(@Nonnull CharSequence seq) {
+		throw new IllegalStateException(String.format("Unable to add attribute value [%s]", seq));
+	}
+
+	@Override
+	public void doCharacters(@Nonnull CharSequence seq) {
+		addContent(new Text(seq));
+	}
+
+	@Override
+	public void doComment(@Nonnull CharSequence seq) {
+		addContent(new Comment(seq));
+	}
+
+	@Override
+	public Container.Builder doElementEnd() {
+		throw new IllegalStateException("End tag without a start tag");
+	}
+
+	@Override
+	public Element.Builder doElementStart(@Nonnull CharSequence seq) {
+		return Element.builder(this, seq);
+	}
+
+	@Override
+	public void doProcessingInstruction(@Nonnull CharSequence seq) {
+		addContent(new ProcessingInstruction(seq.toString(), ""));
+	}
+
+	@Override
+	public Namespace declaredNamespaceForPrefix(@Nonnull String prefix) {
+		return scope.declaredNamespaceForPrefix(prefix);
+	}
+
+	@Override
+	public void addContent(@Nonnull Node node) {
+		nodes.add(node);
+	}
+}
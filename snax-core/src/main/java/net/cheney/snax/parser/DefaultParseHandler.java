@@ -0,0 +1,50 @@
+package net.cheney.snax.parser;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link ParseHandler} that ignores every event, extend it and override the events of interest.
+ */
+public abstract class DefaultParseHandler implements ParseHandler {
+
+	@Override
+	public void startElement(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+	@Override
+	public void attributeName(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+	@Override
+	public void attributeValue(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+	@Override
+	public void endAttributes() {
+		// ignore
+	}
+
+	@Override
+	public void endElement() {
+		// ignore
+	}
+
+	@Override
+	public void characters(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+	@Override
+	public void comment(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+	@Override
+	public void processingInstruction(@Nonnull CharSequence seq, int offset, int length) {
+		// ignore
+	}
+
+}
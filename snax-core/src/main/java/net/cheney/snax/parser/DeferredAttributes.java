@@ -0,0 +1,75 @@
+package net.cheney.snax.parser;
+
+import static net.cheney.snax.parser.XMLChars.isWhitespace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Node;
+import net.cheney.snax.util.CharSlice;
+
+/**
+ * The attributes of a start tag that {@link XMLScanner} checked but did not report. They are
+ * tokenized when first read, without checking them again, and their values are kept as
+ * {@link CharSlice}s of the source. Namespace declarations were reported when the tag was scanned
+ * and are skipped.
+ */
+@Immutable
+final class DeferredAttributes implements Element.Deferred {
+
+	private final CharSequence seq;
+
+	// from is the index after the element's name, to the index of the / or > that ends the tag
+	private final int from, to;
+
+	DeferredAttributes(@Nonnull CharSequence seq, int from, int to) {
+		this.seq = seq;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	public Iterable<? extends Node> load(Container.Builder scope) {
+		final CharSequence seq = this.seq;
+		final List<Node> attributes = new ArrayList<Node>(4);
+		int p = from;
+		for(;;) {
+			while(p < to && isWhitespace(seq.charAt(p))) {
+				++p;
+			}
+			if(p == to) {
+				return attributes;
+			}
+			final int name = p;
+			char c = seq.charAt(p);
+			while(c != '=' && !isWhitespace(c)) {
+				c = seq.charAt(++p);
+			}
+			final int nameLength = p - name;
+			while(c != '\'' && c != '"') {
+				c = seq.charAt(++p);
+			}
+			final int value = p + 1;
+			p = value;
+			while(seq.charAt(p) != c) {
+				++p;
+			}
+			if(!isNamespaceDeclaration(seq, name, nameLength)) {
+				attributes.add(new Attribute(BuilderHandler.SYMBOLS.symbol(seq, name, nameLength), new CharSlice(seq, value, p - value)));
+			}
+			++p;
+		}
+	}
+
+	// as in Element.Builder every name starting with xmlns declares a namespace
+	private static boolean isNamespaceDeclaration(@Nonnull CharSequence seq, int offset, int length) {
+		return length >= 5 && seq.charAt(offset) == 'x' && seq.charAt(offset + 1) == 'm' && seq.charAt(offset + 2) == 'l'
+			&& seq.charAt(offset + 3) == 'n' && seq.charAt(offset + 4) == 's';
+	}
+}
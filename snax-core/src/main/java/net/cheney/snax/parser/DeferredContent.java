@@ -0,0 +1,38 @@
+package net.cheney.snax.parser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Node;
+
+/**
+ * The content of an element that {@link XMLScanner} bracketed without parsing. It is parsed one 
+ * level at a time, the content of each child element is deferred in turn.
+ */
+@Immutable
+final class DeferredContent implements Element.Deferred {
+
+	private final CharSequence seq;
+
+	// to is the index of the < of the element's end tag
+	private final int from, to;
+
+	private final boolean lazyAttributes;
+
+	DeferredContent(@Nonnull CharSequence seq, int from, int to, boolean lazyAttributes) {
+		this.seq = seq;
+		this.from = from;
+		this.to = to;
+		this.lazyAttributes = lazyAttributes;
+	}
+
+	@Override
+	public Iterable<? extends Node> load(@Nonnull Container.Builder scope) {
+		final ContentBuilder content = new ContentBuilder(scope);
+		// the < of the end tag is included so that text before it is reported
+		new XMLScanner(new BuilderHandler(content, seq), 0, lazyAttributes).parse(seq, from, to + 1);
+		return content.nodes;
+	}
+}
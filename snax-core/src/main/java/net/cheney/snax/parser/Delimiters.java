@@ -0,0 +1,81 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Finds the byte that ends a run of text, CDATA or an attribute value eight bytes at a time.
+ * Every delimiter is ASCII, so the same search works for UTF-8 and the single byte encodings.
+ */
+final class Delimiters {
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private Delimiters() {
+		// static methods only
+	}
+
+	/**
+	 * @return the index of the first b between from and to, or to if there is none
+	 */
+	static int indexOf(@Nonnull ByteBuffer buffer, int from, int to, byte b) {
+		final long pattern = (b & 0xFF) * ONES;
+		final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+		int i = from;
+		for( ; i + 8 <= to ; i += 8) {
+			final long matches = zeroBytes(buffer.getLong(i) ^ pattern);
+			if(matches != 0) {
+				return i + first(matches, bigEndian);
+			}
+		}
+		for( ; i < to ; ++i) {
+			if(buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * @return the index of the first quote, control character or byte outside ASCII between from
+	 * and to, or to if there is none. The bytes before it are chars allowed in an attribute value.
+	 */
+	static int indexOfQuoteOrNonPrintable(@Nonnull ByteBuffer buffer, int from, int to, byte quote) {
+		final long pattern = (quote & 0xFF) * ONES;
+		final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+		int i = from;
+		for( ; i + 8 <= to ; i += 8) {
+			final long word = buffer.getLong(i);
+			// the high bit is set for bytes over 0x7F, and adding 0x60 leaves it clear for bytes under 0x20
+			final long nonPrintable = (word | ~((word & LOW_BITS) + 0x6060606060606060L)) & HIGH_BITS;
+			final long matches = zeroBytes(word ^ pattern) | nonPrintable;
+			if(matches != 0) {
+				return i + first(matches, bigEndian);
+			}
+		}
+		for( ; i < to ; ++i) {
+			final byte b = buffer.get(i);
+			if(b == quote || b < 0x20) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	// the high bit of each byte of the result is set if that byte of word is zero, without the
+	// false positives of the shorter (word - ONES) & ~word form
+	private static long zeroBytes(long word) {
+		return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+	}
+
+	// the index in memory of the first byte flagged in matches
+	private static int first(long matches, boolean bigEndian) {
+		return (bigEndian ? Long.numberOfLeadingZeros(matches) : Long.numberOfTrailingZeros(matches)) >>> 3;
+	}
+}
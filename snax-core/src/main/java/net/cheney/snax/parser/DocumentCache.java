@@ -0,0 +1,397 @@
+package net.cheney.snax.parser;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Comment;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Node;
+import net.cheney.snax.model.ProcessingInstruction;
+import net.cheney.snax.model.Text;
+
+/**
+ * Shares the {@link Document} parsed from the same input between every caller. Input is keyed on
+ * a hash of its bytes, which are kept to compare with on a hit, and a file on its path, last
+ * modified time and size, so a file that changes is parsed again.
+ * <p>
+ * The cache is bounded by an estimate of the memory its documents and keys retain. When it is
+ * full the least recently used entries are evicted, approximately, by a CLOCK: a hit only marks
+ * its entry, and the entries are swept in the order they were added, each marked one being
+ * unmarked and given another round. A hit takes no lock. Two threads that miss on the same input
+ * at once may both parse it, only one document is kept.
+ */
+@ThreadSafe
+public final class DocumentCache {
+
+	// estimated sizes, on a 64 bit JVM with compressed references, of the objects that make up a document
+	private static final int ELEMENT_SIZE = 64, VALUE_NODE_SIZE = 56, REFERENCE_SIZE = 4, ENTRY_SIZE = 96;
+
+	private final long maxWeight;
+
+	private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+
+	// every entry in the order it was added, or unmarked and given another round
+	private final Queue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+
+	private final AtomicLong weight = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+	private final ParserPool parsers = new ParserPool();
+
+	/**
+	 * @param maxWeight the most memory, in bytes, the documents and keys cached may retain by estimate
+	 */
+	public DocumentCache(long maxWeight) {
+		if(maxWeight <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid maximum weight %d", maxWeight));
+		}
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Parse the remaining bytes of buffer, in the charset found by {@link EncodingDetector}, unless
+	 * the same bytes are cached. The position of buffer is not moved.
+	 */
+	public Document parse(@Nonnull ByteBuffer buffer) {
+		return parse(buffer, null);
+	}
+
+	/**
+	 * Parse the remaining bytes of buffer in charset, unless the same bytes in the same charset are
+	 * cached. The position of buffer is not moved.
+	 *
+	 * @param charset or null to detect it
+	 */
+	public Document parse(@Nonnull ByteBuffer buffer, Charset charset) {
+		final Entry entry = entries.get(new BytesKey(buffer, charset));
+		if(entry != null) {
+			return hit(entry);
+		}
+		misses.increment();
+		final Document document = parse(buffer.duplicate(), charset, parsers);
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return put(new Entry(new BytesKey(ByteBuffer.wrap(bytes), charset), document, 0, 0, bytes.length));
+	}
+
+	/**
+	 * Parse the file at path, in the charset found by {@link EncodingDetector}, unless it is cached
+	 * and has not been modified since.
+	 */
+	public Document parse(@Nonnull Path path) throws IOException {
+		final Path key = path.toAbsolutePath().normalize();
+		final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		final long modified = attributes.lastModifiedTime().toMillis(), size = attributes.size();
+		final Entry entry = entries.get(key);
+		if(entry != null && entry.modified == modified && entry.size == size) {
+			return hit(entry);
+		}
+		misses.increment();
+		// read after the attributes, so a change made while it is read is seen by the next call
+		final Document document = parse(ByteBuffer.wrap(Files.readAllBytes(key)), null, parsers);
+		final Entry parsed = new Entry(key, document, modified, size, key.toString().length() << 1);
+		if(entry != null && entries.replace(key, entry, parsed)) {
+			// the entry left in the clock is dropped when it is reached
+			weight.addAndGet(-entry.weight);
+			return add(parsed);
+		}
+		return put(parsed);
+	}
+
+	private static Document parse(@Nonnull ByteBuffer buffer, Charset charset, @Nonnull ParserPool parsers) {
+		return charset == null ? parsers.parse(buffer) : parsers.parse(buffer, charset);
+	}
+
+	private Document hit(@Nonnull Entry entry) {
+		hits.increment();
+		if(!entry.referenced) {
+			// written only when it changes, so hits on the same entry do not contend
+			entry.referenced = true;
+		}
+		return entry.document;
+	}
+
+	private Document put(@Nonnull Entry entry) {
+		if(entry.weight > maxWeight) {
+			return entry.document;
+		}
+		final Entry existing = entries.putIfAbsent(entry.key, entry);
+		if(existing != null) {
+			return existing.document;
+		}
+		return add(entry);
+	}
+
+	// entry has just been mapped
+	private Document add(@Nonnull Entry entry) {
+		clock.offer(entry);
+		if(weight.addAndGet(entry.weight) > maxWeight) {
+			evict();
+		}
+		return entry.document;
+	}
+
+	private void evict() {
+		synchronized (clock) {
+			while(weight.get() > maxWeight) {
+				final Entry entry = clock.poll();
+				if(entry == null) {
+					return;
+				}
+				if(entries.get(entry.key) != entry) {
+					// replaced or removed
+					continue;
+				}
+				if(entry.referenced) {
+					entry.referenced = false;
+					clock.offer(entry);
+				} else if(entries.remove(entry.key, entry)) {
+					weight.addAndGet(-entry.weight);
+					evictions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove every document.
+	 */
+	public void clear() {
+		synchronized (clock) {
+			// every entry mapped is in the clock, or is about to be added to it
+			for(Entry entry = clock.poll() ; entry != null ; entry = clock.poll()) {
+				if(entries.remove(entry.key, entry)) {
+					weight.addAndGet(-entry.weight);
+				}
+			}
+		}
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the number of documents cached
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated memory, in bytes, retained by the documents and keys cached
+	 */
+	public long weight() {
+		return weight.get();
+	}
+
+	/**
+	 * @return an estimate of the memory, in bytes, retained by the nodes of document, the names
+	 * they share are not counted
+	 */
+	static long estimate(@Nonnull Document document) {
+		long size = ELEMENT_SIZE;
+		final Deque<Element> elements = new ArrayDeque<Element>();
+		for(Node node : document.children()) {
+			size += REFERENCE_SIZE + estimate(node, elements);
+		}
+		while(!elements.isEmpty()) {
+			final Element element = elements.pop();
+			for(Attribute attribute : element.attributes()) {
+				size += REFERENCE_SIZE + estimate(attribute, elements);
+			}
+			for(Node node : element.children()) {
+				size += REFERENCE_SIZE + estimate(node, elements);
+			}
+		}
+		return size;
+	}
+
+	// the size of node, or of an element without its content, which is pushed on to elements
+	private static long estimate(@Nonnull Node node, @Nonnull Deque<Element> elements) {
+		switch(node.type()) {
+		case ELEMENT:
+			elements.push((Element) node);
+			return ELEMENT_SIZE;
+		case TEXT:
+			return VALUE_NODE_SIZE + (((Text) node).value().length() << 1);
+		case COMMENT:
+			return VALUE_NODE_SIZE + (((Comment) node).value().length() << 1);
+		case ATTRIBUTE:
+			return VALUE_NODE_SIZE + (((Attribute) node).value().length() << 1);
+		case PROCESSING_INSTRUCTION:
+			final ProcessingInstruction pi = (ProcessingInstruction) node;
+			return VALUE_NODE_SIZE + ((pi.target().length() + pi.data().length()) << 1);
+		default:
+			return VALUE_NODE_SIZE;
+		}
+	}
+
+	private static final class Entry {
+
+		// a BytesKey or a Path
+		final Object key;
+
+		final Document document;
+
+		// the file's when it was read, or 0
+		final long modified, size;
+
+		final long weight;
+
+		// set by a hit, cleared when the clock passes
+		volatile boolean referenced;
+
+		Entry(@Nonnull Object key, @Nonnull Document document, long modified, long size, long keyWeight) {
+			this.key = key;
+			this.document = document;
+			this.modified = modified;
+			this.size = size;
+			this.weight = ENTRY_SIZE + keyWeight + estimate(document);
+		}
+	}
+
+	/**
+	 * The bytes of a document and the charset they were parsed in. The hash is computed once, a
+	 * probe wraps the caller's buffer and the key that is kept a copy of it. Keys are ordered, so
+	 * that a bin of keys with the same hash is searched as a tree rather than compared in turn.
+	 */
+	private static final class BytesKey implements Comparable<BytesKey> {
+
+		private final ByteBuffer bytes;
+
+		private final Charset charset;
+
+		private final int hash;
+
+		private static final long M = 0x9E3779B97F4A7C15L;
+
+		private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+		BytesKey(@Nonnull ByteBuffer bytes, Charset charset) {
+			this.bytes = bytes;
+			this.charset = charset;
+			this.hash = hash(bytes) * 31 + (charset == null ? 0 : charset.hashCode());
+		}
+
+		// every byte is hashed, a miss reads them all to parse anyway, in four lanes of longs whose
+		// multiplies overlap, read big endian as equals ignores the order of the buffer
+		private static int hash(@Nonnull ByteBuffer bytes) {
+			final int from = bytes.position(), to = bytes.limit();
+			final long[] lanes = { to - from, M, ~M, M >>> 1 };
+			final int p;
+			if(bytes.hasArray()) {
+				final int offset = bytes.arrayOffset();
+				p = hash(bytes.array(), offset + from, offset + to, lanes) - offset;
+			} else {
+				p = hash(bytes.order() == ByteOrder.BIG_ENDIAN ? bytes : bytes.duplicate().order(ByteOrder.BIG_ENDIAN), from, to, lanes);
+			}
+			long h = lanes[0];
+			for(int i = p ; i < to ; ++i) {
+				h = (h ^ bytes.get(i)) * M;
+			}
+			h = mix(mix(mix(h, lanes[1]), lanes[2]), lanes[3]);
+			h ^= h >>> 29;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		// the lanes are left in lanes, returns the index of the bytes left over, fewer than a long
+		private static int hash(@Nonnull byte[] bytes, int from, int to, @Nonnull long[] lanes) {
+			long h0 = lanes[0], h1 = lanes[1], h2 = lanes[2], h3 = lanes[3];
+			int p = from;
+			for( ; p + 32 <= to ; p += 32) {
+				h0 = mix(h0, (long) LONGS.get(bytes, p));
+				h1 = mix(h1, (long) LONGS.get(bytes, p + 8));
+				h2 = mix(h2, (long) LONGS.get(bytes, p + 16));
+				h3 = mix(h3, (long) LONGS.get(bytes, p + 24));
+			}
+			for( ; p + 8 <= to ; p += 8) {
+				h0 = mix(h0, (long) LONGS.get(bytes, p));
+			}
+			lanes[0] = h0;
+			lanes[1] = h1;
+			lanes[2] = h2;
+			lanes[3] = h3;
+			return p;
+		}
+
+		private static int hash(@Nonnull ByteBuffer bytes, int from, int to, @Nonnull long[] lanes) {
+			long h0 = lanes[0], h1 = lanes[1], h2 = lanes[2], h3 = lanes[3];
+			int p = from;
+			for( ; p + 32 <= to ; p += 32) {
+				h0 = mix(h0, bytes.getLong(p));
+				h1 = mix(h1, bytes.getLong(p + 8));
+				h2 = mix(h2, bytes.getLong(p + 16));
+				h3 = mix(h3, bytes.getLong(p + 24));
+			}
+			for( ; p + 8 <= to ; p += 8) {
+				h0 = mix(h0, bytes.getLong(p));
+			}
+			lanes[0] = h0;
+			lanes[1] = h1;
+			lanes[2] = h2;
+			lanes[3] = h3;
+			return p;
+		}
+
+		private static long mix(long h, long l) {
+			return Long.rotateLeft((h ^ l) * M, 29);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object that) {
+			if(that instanceof BytesKey) {
+				final BytesKey key = (BytesKey) that;
+				return hash == key.hash && (charset == null ? key.charset == null : charset.equals(key.charset)) && bytes.equals(key.bytes);
+			}
+			return false;
+		}
+
+		// consistent with equals, by bytes then by charset, an absent charset first
+		@Override
+		public int compareTo(BytesKey key) {
+			final int c = bytes.compareTo(key.bytes);
+			if(c != 0 || charset == key.charset) {
+				return c;
+			}
+			if(charset == null || key.charset == null) {
+				return charset == null ? -1 : 1;
+			}
+			return charset.compareTo(key.charset);
+		}
+	}
+}
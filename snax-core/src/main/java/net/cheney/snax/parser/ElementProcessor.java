@@ -0,0 +1,250 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.cheney.snax.model.Element;
+
+/**
+ * Parses a stream of byte chunks, such as a streamed HTTP body, and publishes each element at a 
+ * given depth as soon as it is complete, the root being at depth 1. The rest of the document is 
+ * not built, as with {@link RecordIterator} only the namespaces declared above that depth are 
+ * held, so a stream that never ends is parsed in constant memory.
+ * <p>
+ * Chunks are requested from upstream one at a time and fed to an {@link XMLParser} a slice at a 
+ * time, only while the subscriber has unmet demand. With no demand nothing is parsed, and at most 
+ * the elements completed by one slice wait to be delivered. A processor has one subscriber, a 
+ * parse error is published to it and cancels the upstream subscription, and the end of the 
+ * stream is an error unless the document is complete.
+ */
+@ThreadSafe
+public final class ElementProcessor implements Flow.Processor<ByteBuffer, Element> {
+
+	// the most bytes parsed between checks for demand
+	static final int SLICE_SIZE = 8 * 1024;
+
+	private final XMLParser parser;
+
+	// the elements parsed and not yet delivered, only touched by the thread draining
+	private final Queue<Element> elements = new ArrayDeque<Element>();
+
+	private final AtomicLong demand = new AtomicLong();
+
+	// drain() runs on one thread at a time, a call while it is running makes it loop again
+	private final AtomicInteger draining = new AtomicInteger();
+
+	private Flow.Subscription upstream;
+
+	private Flow.Subscriber<? super Element> subscriber;
+
+	// the chunk delivered by upstream and not yet taken by drain()
+	private volatile ByteBuffer incoming;
+
+	private volatile boolean upstreamDone, cancelled;
+
+	private volatile Throwable error;
+
+	// the rest of these are only touched by the thread draining
+
+	private ByteBuffer chunk;
+
+	private boolean requested, ended, terminated;
+
+	public ElementProcessor(int depth) {
+		this(Charset.forName("UTF-8"), depth);
+	}
+
+	/**
+	 * @param charset the encoding of the chunks
+	 * @param depth the depth of the elements published, the root being at depth 1
+	 * @throws IllegalArgumentException if depth is less than 1
+	 */
+	public ElementProcessor(@Nonnull Charset charset, int depth) {
+		if(depth < 1) {
+			throw new IllegalArgumentException(String.format("Invalid depth %d", depth));
+		}
+		final String[] steps = new String[depth];
+		Arrays.fill(steps, "*");
+		this.parser = new XMLParser(new RecordHandler(steps, elements), charset);
+	}
+
+	@Override
+	public void subscribe(@Nonnull Flow.Subscriber<? super Element> subscriber) {
+		synchronized(this) {
+			if(this.subscriber != null) {
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override
+					public void request(long n) {
+						// never delivered
+					}
+
+					@Override
+					public void cancel() {
+						// never delivered
+					}
+				});
+				subscriber.onError(new IllegalStateException("This processor already has a subscriber"));
+				return;
+			}
+			this.subscriber = subscriber;
+		}
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if(n <= 0) {
+					error = new IllegalArgumentException(String.format("Invalid request of %d elements", n));
+				} else {
+					long current, next;
+					do {
+						current = demand.get();
+						next = current + n < 0 ? Long.MAX_VALUE : current + n;
+					} while(!demand.compareAndSet(current, next));
+				}
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+				drain();
+			}
+		});
+		drain();
+	}
+
+	@Override
+	public void onSubscribe(@Nonnull Flow.Subscription subscription) {
+		synchronized(this) {
+			if(upstream != null || cancelled) {
+				subscription.cancel();
+				return;
+			}
+			upstream = subscription;
+		}
+		drain();
+	}
+
+	@Override
+	public void onNext(@Nonnull ByteBuffer chunk) {
+		incoming = chunk;
+		drain();
+	}
+
+	@Override
+	public void onError(@Nonnull Throwable t) {
+		error = t;
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	private void drain() {
+		if(draining.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			final Flow.Subscriber<? super Element> subscriber;
+			final Flow.Subscription upstream;
+			synchronized(this) {
+				subscriber = this.subscriber;
+				upstream = this.upstream;
+			}
+			if(subscriber != null && !terminated) {
+				drain(subscriber, upstream);
+			}
+			missed = draining.addAndGet(-missed);
+		} while(missed != 0);
+	}
+
+	private void drain(@Nonnull Flow.Subscriber<? super Element> subscriber, Flow.Subscription upstream) {
+		for( ; ; ) {
+			if(cancelled) {
+				terminate(upstream);
+				return;
+			}
+			final Throwable error = this.error;
+			if(error != null) {
+				if(!upstreamDone) {
+					terminate(upstream);
+				} else {
+					terminate(null);
+				}
+				subscriber.onError(error);
+				return;
+			}
+			if(!elements.isEmpty()) {
+				if(demand.get() == 0) {
+					return;
+				}
+				demand.decrementAndGet();
+				subscriber.onNext(elements.remove());
+				continue;
+			}
+			if(ended) {
+				terminate(null);
+				subscriber.onComplete();
+				return;
+			}
+			if(demand.get() == 0) {
+				// nothing is parsed until there is demand
+				return;
+			}
+			if(chunk == null && incoming != null) {
+				chunk = incoming;
+				incoming = null;
+				requested = false;
+			}
+			try {
+				if(chunk != null) {
+					feedSlice();
+				} else if(upstreamDone) {
+					parser.endOfInput();
+					ended = true;
+				} else {
+					if(!requested && upstream != null) {
+						requested = true;
+						upstream.request(1);
+					}
+					return;
+				}
+			} catch (RuntimeException e) {
+				this.error = e;
+			}
+		}
+	}
+
+	private void feedSlice() {
+		final ByteBuffer slice = chunk.duplicate();
+		slice.limit(Math.min(slice.position() + SLICE_SIZE, slice.limit()));
+		chunk.position(slice.limit());
+		if(!chunk.hasRemaining()) {
+			chunk = null;
+		}
+		parser.feed(slice);
+	}
+
+	private void terminate(Flow.Subscription upstream) {
+		terminated = true;
+		elements.clear();
+		chunk = null;
+		incoming = null;
+		if(upstream != null) {
+			upstream.cancel();
+		}
+	}
+}
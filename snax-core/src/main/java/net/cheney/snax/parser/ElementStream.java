@@ -0,0 +1,115 @@
+package net.cheney.snax.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import net.cheney.snax.model.Element;
+
+/**
+ * Parses an unbounded sequence of top level elements, such as the messages sent over a 
+ * connection, and passes each to a {@link Listener} as soon as its end tag is read. Text, 
+ * comments and XML declarations between elements are ignored.
+ * <p>
+ * An element is not held once its listener returns and the same parser and buffers are used for 
+ * every element, so a stream can be read for as long as it lasts in constant memory, as long as 
+ * each element fits. Call {@link #reset()} to read a new stream after an error.
+ */
+@NotThreadSafe
+public final class ElementStream {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	public interface Listener {
+
+		/**
+		 * @param element a top level element, complete
+		 */
+		void element(@Nonnull Element element);
+	}
+
+	private final Listener listener;
+
+	// the elements completed by the last chunk, only held until they are passed to the listener
+	private final Queue<Element> elements = new ArrayDeque<Element>();
+
+	private final RecordHandler handler = new RecordHandler(new String[] { "*" }, elements);
+
+	private final XMLParser parser;
+
+	public ElementStream(@Nonnull Listener listener) {
+		this(listener, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * @param charset the encoding of the buffers passed to {@link #feed(ByteBuffer)}
+	 */
+	public ElementStream(@Nonnull Listener listener, @Nonnull Charset charset) {
+		this.listener = listener;
+		this.parser = new XMLParser(handler, charset);
+	}
+
+	/**
+	 * Parse the next part of the stream, buffer is consumed. An element, or a multi byte sequence, 
+	 * cut off at the end of buffer is completed by the next call.
+	 */
+	public void feed(@Nonnull ByteBuffer buffer) {
+		parser.feed(buffer);
+		deliver();
+	}
+
+	/**
+	 * Parse the next part of the stream, an element cut off at the end of seq is completed by the next call.
+	 */
+	public void feed(@Nonnull CharSequence seq) {
+		parser.parse(seq);
+		deliver();
+	}
+
+	/**
+	 * Read channel until it ends, which may be never for a connection.
+	 *
+	 * @throws IllegalStateException if the stream ends inside an element
+	 */
+	public void read(@Nonnull ReadableByteChannel channel) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+		while(channel.read(buffer) >= 0) {
+			buffer.flip();
+			feed(buffer);
+			buffer.clear();
+		}
+		endOfInput();
+	}
+
+	/**
+	 * Signal that the stream has ended.
+	 *
+	 * @throws IllegalStateException if the stream ends inside an element, or before the first
+	 */
+	public void endOfInput() {
+		parser.endOfInput();
+		deliver();
+	}
+
+	/**
+	 * Start reading a new stream, the element being read, if any, is dropped.
+	 */
+	public void reset() {
+		parser.reset();
+		handler.reset();
+		elements.clear();
+	}
+
+	private void deliver() {
+		Element element;
+		while((element = elements.poll()) != null) {
+			listener.element(element);
+		}
+	}
+}
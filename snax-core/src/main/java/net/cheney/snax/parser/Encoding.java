@@ -0,0 +1,155 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Byte encodings that {@link XMLParser} can scan without first decoding the
+ * whole input into a {@link java.nio.CharBuffer}. Every markup delimiter is
+ * ASCII, so the parser only needs to decode the slices it hands to the builder.
+ */
+enum Encoding {
+
+	UTF_8 {
+		@Override
+		int decode(@Nonnull ByteBuffer src, int from, int to, @Nonnull char[] dst) {
+			int length = 0;
+			for (int i = from; i < to;) {
+				final int b = src.get(i);
+				if (b >= 0) {
+					dst[length++] = (char) b;
+					++i;
+				} else {
+					final int decoded = decodeMultiByte(src, i, to);
+					if(decoded == INCOMPLETE) {
+						dst[length++] = REPLACEMENT_CHAR;
+						break;
+					}
+					length = append(codePoint(decoded), dst, length);
+					i += sequenceLength(decoded);
+				}
+			}
+			return length;
+		}
+	},
+
+	ISO_8859_1 {
+		@Override
+		int decode(@Nonnull ByteBuffer src, int from, int to, @Nonnull char[] dst) {
+			int length = 0;
+			for (int i = from; i < to; ++i) {
+				dst[length++] = (char) (src.get(i) & 0xFF);
+			}
+			return length;
+		}
+	},
+
+	US_ASCII {
+		@Override
+		int decode(@Nonnull ByteBuffer src, int from, int to, @Nonnull char[] dst) {
+			int length = 0;
+			for (int i = from; i < to; ++i) {
+				final int b = src.get(i);
+				dst[length++] = b < 0 ? REPLACEMENT_CHAR : (char) b;
+			}
+			return length;
+		}
+	};
+
+	static final char REPLACEMENT_CHAR = '\uFFFD';
+
+	/**
+	 * Returned by {@link #decodeMultiByte(ByteBuffer, int, int)} when a sequence is valid so far but 
+	 * continues past the limit
+	 */
+	static final int INCOMPLETE = 0;
+
+	private static final Charset UTF_8_CHARSET = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1_CHARSET = Charset.forName("ISO-8859-1");
+	private static final Charset US_ASCII_CHARSET = Charset.forName("US-ASCII");
+
+	/**
+	 * Decode the bytes between from and to into dst, replacing malformed input
+	 * with U+FFFD in the same way {@link Charset#decode(ByteBuffer)} does.
+	 *
+	 * @param dst must be at least to - from chars long
+	 * @return the number of chars written to dst
+	 */
+	abstract int decode(@Nonnull ByteBuffer src, int from, int to, @Nonnull char[] dst);
+
+	/**
+	 * @return the matching {@link Encoding}, or null if the charset must be decoded by the JDK
+	 */
+	static Encoding forCharset(@Nonnull Charset charset) {
+		if (UTF_8_CHARSET.equals(charset)) {
+			return UTF_8;
+		} else if (ISO_8859_1_CHARSET.equals(charset)) {
+			return ISO_8859_1;
+		} else if (US_ASCII_CHARSET.equals(charset)) {
+			return US_ASCII;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Decode the multi byte UTF-8 sequence starting at index.
+	 *
+	 * @return the code point in the low 21 bits and the number of bytes consumed in the high byte,
+	 * see {@link #codePoint(int)} and {@link #sequenceLength(int)}. Malformed sequences decode to U+FFFD
+	 * and consume their longest valid prefix, sequences cut off by limit return {@link #INCOMPLETE}.
+	 */
+	static int decodeMultiByte(@Nonnull ByteBuffer src, int index, int limit) {
+		final int b0 = src.get(index) & 0xFF;
+		final int length, min, max;
+		int cp;
+		if (b0 >= 0xC2 && b0 <= 0xDF) {
+			length = 2; cp = b0 & 0x1F; min = 0x80; max = 0xBF;
+		} else if (b0 >= 0xE0 && b0 <= 0xEF) {
+			length = 3; cp = b0 & 0x0F;
+			min = b0 == 0xE0 ? 0xA0 : 0x80;
+			max = b0 == 0xED ? 0x9F : 0xBF;
+		} else if (b0 >= 0xF0 && b0 <= 0xF4) {
+			length = 4; cp = b0 & 0x07;
+			min = b0 == 0xF0 ? 0x90 : 0x80;
+			max = b0 == 0xF4 ? 0x8F : 0xBF;
+		} else {
+			return malformed(1);
+		}
+		for (int i = 1; i < length; ++i) {
+			if (index + i >= limit) {
+				return INCOMPLETE;
+			}
+			final int b = src.get(index + i) & 0xFF;
+			if (b < (i == 1 ? min : 0x80) || b > (i == 1 ? max : 0xBF)) {
+				return malformed(i);
+			}
+			cp = (cp << 6) | (b & 0x3F);
+		}
+		return (length << 24) | cp;
+	}
+
+	private static int malformed(int consumed) {
+		return (consumed << 24) | REPLACEMENT_CHAR;
+	}
+
+	static int codePoint(int decoded) {
+		return decoded & 0x1FFFFF;
+	}
+
+	static int sequenceLength(int decoded) {
+		return decoded >>> 24;
+	}
+
+	private static int append(int cp, @Nonnull char[] dst, int length) {
+		if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+			dst[length++] = (char) cp;
+		} else {
+			dst[length++] = Character.highSurrogate(cp);
+			dst[length++] = Character.lowSurrogate(cp);
+		}
+		return length;
+	}
+}
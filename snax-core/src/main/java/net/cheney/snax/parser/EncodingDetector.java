@@ -0,0 +1,123 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Works out the encoding of a document from its first bytes, as in appendix F of the XML 1.0
+ * specification. A byte order mark decides it, then the byte pattern of a UTF-16 &lt;, then the
+ * encoding of an XML declaration, and a document with none of them is UTF-8.
+ */
+public final class EncodingDetector {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+	private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+	// an encoding declaration is only looked for this far into the document
+	private static final int MAX_DECLARATION_LENGTH = 512;
+
+	private EncodingDetector() {
+		// static methods only
+	}
+
+	/**
+	 * Detect the encoding of the remaining bytes of buffer. The position of buffer is moved past a
+	 * byte order mark, so the charset returned decodes the rest of it.
+	 *
+	 * @throws IllegalArgumentException if the declared encoding is not a charset this JVM supports
+	 */
+	public static Charset detect(@Nonnull ByteBuffer buffer) {
+		final int p = buffer.position(), remaining = buffer.remaining();
+		final int b0 = remaining > 0 ? buffer.get(p) & 0xFF : -1;
+		final int b1 = remaining > 1 ? buffer.get(p + 1) & 0xFF : -1;
+		if(b0 == 0xEF && b1 == 0xBB && remaining > 2 && (buffer.get(p + 2) & 0xFF) == 0xBF) {
+			buffer.position(p + 3);
+			return UTF_8;
+		} else if(b0 == 0xFE && b1 == 0xFF) {
+			buffer.position(p + 2);
+			return UTF_16BE;
+		} else if(b0 == 0xFF && b1 == 0xFE) {
+			buffer.position(p + 2);
+			return UTF_16LE;
+		} else if(b0 == 0x00 && b1 == '<') {
+			return UTF_16BE;
+		} else if(b0 == '<' && b1 == 0x00) {
+			return UTF_16LE;
+		}
+		final String declared = declaredEncoding(buffer);
+		return declared == null ? UTF_8 : forName(declared);
+	}
+
+	private static Charset forName(@Nonnull String name) {
+		try {
+			return Charset.forName(name);
+		} catch (IllegalCharsetNameException e) {
+			throw new IllegalArgumentException(String.format("Invalid encoding [%s]", name), e);
+		}
+	}
+
+	/**
+	 * @return the value of the encoding of an XML declaration at the start of buffer, or null
+	 */
+	static String declaredEncoding(@Nonnull ByteBuffer buffer) {
+		final int from = buffer.position(), to = Math.min(buffer.limit(), from + MAX_DECLARATION_LENGTH);
+		if(!startsWith(buffer, from, to, "<?xml") || from + 5 == to || !XMLChars.isWhitespace((char) buffer.get(from + 5))) {
+			return null;
+		}
+		for(int p = from + 6 ; p < to ; ++p) {
+			final int b = buffer.get(p);
+			if(b == '?') {
+				// the end of the declaration
+				return null;
+			} else if(b == 'e' && startsWith(buffer, p, to, "encoding") && XMLChars.isWhitespace((char) buffer.get(p - 1))) {
+				int q = skipWhitespace(buffer, p + 8, to);
+				if(q == to || buffer.get(q) != '=') {
+					return null;
+				}
+				q = skipWhitespace(buffer, q + 1, to);
+				if(q == to) {
+					return null;
+				}
+				final int quote = buffer.get(q);
+				if(quote != '\'' && quote != '"') {
+					return null;
+				}
+				final StringBuilder name = new StringBuilder(16);
+				for(++q ; q < to ; ++q) {
+					final int c = buffer.get(q);
+					if(c == quote) {
+						return name.toString();
+					}
+					name.append((char) (c & 0xFF));
+				}
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static boolean startsWith(@Nonnull ByteBuffer buffer, int p, int to, @Nonnull String s) {
+		if(to - p < s.length()) {
+			return false;
+		}
+		for(int i = 0 ; i < s.length() ; ++i) {
+			if(buffer.get(p + i) != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int skipWhitespace(@Nonnull ByteBuffer buffer, int p, int to) {
+		while(p < to && XMLChars.isWhitespace((char) buffer.get(p))) {
+			++p;
+		}
+		return p;
+	}
+}
@@ -0,0 +1,328 @@
+package net.cheney.snax.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Node;
+
+/**
+ * Parses a large document on a {@link ForkJoinPool}. A quick pass finds where the root's children
+ * start without parsing them, then runs of children are parsed concurrently and the nodes they
+ * build are added to the root element in document order. Every run is parsed beneath the root's
+ * {@link Element.Builder}, so the namespaces declared on the root are in scope in each of them.
+ * <p>
+ * The document built is the one {@link XMLScanner} would build. The prolog, the root's start and
+ * end tags and anything that cannot be split are parsed on the calling thread.
+ */
+@ThreadSafe
+public final class ParallelParser {
+
+	// runs of children shorter than this are not worth a task of their own
+	static final int MIN_RUN_LENGTH = 64 * 1024;
+
+	// files larger than this are mapped one window at a time
+	private static final long MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	private final ForkJoinPool pool;
+
+	private final int minRunLength;
+
+	public ParallelParser() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public ParallelParser(@Nonnull ForkJoinPool pool) {
+		this(pool, MIN_RUN_LENGTH);
+	}
+
+	ParallelParser(@Nonnull ForkJoinPool pool, int minRunLength) {
+		this.pool = pool;
+		this.minRunLength = minRunLength;
+	}
+
+	public Document parse(@Nonnull CharSequence seq) {
+		final String source = seq.toString();
+		final Skipper skipper = new Skipper.Chars(source);
+		final int content = rootContent(skipper);
+		if(content < 0) {
+			final XMLScanner scanner = new XMLScanner();
+			scanner.parse(source);
+			return scanner.document();
+		}
+		final BuilderHandler handler = new BuilderHandler();
+		final XMLParser parser = new XMLParser(handler);
+		parser.parse(source.substring(0, content));
+		final Children children = new Children(handler.builder(), runLength(source.length()));
+		final int end = children.split(skipper, content);
+		final int runs = end < 0 ? children.count - 1 : children.count;
+		for(int i = 0 ; i < runs ; ++i) {
+			children.fork(new CharRun(handler.builder(), source, children.starts[i], i + 1 < children.count ? children.starts[i + 1] : end));
+		}
+		children.join();
+		// the root's end tag and the epilog, or a run that was cut short by the end of the document
+		parser.parse(source.substring(end < 0 ? children.starts[runs] : end));
+		return handler.document();
+	}
+
+	/**
+	 * Map the channel into memory and parse it in place. Files larger than 2Gb are mapped in
+	 * consecutive windows, each child of the root must fit in one.
+	 *
+	 * @see XMLParser#supports(Charset)
+	 */
+	public Document parse(@Nonnull FileChannel channel, @Nonnull Charset charset) throws IOException {
+		return parse(channel, charset, MAX_WINDOW_SIZE);
+	}
+
+	Document parse(@Nonnull FileChannel channel, @Nonnull Charset charset, long windowSize) throws IOException {
+		final long size = channel.size();
+		if(!XMLParser.supports(charset)) {
+			if(size > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(String.format("%s cannot be parsed directly, decode it first", charset));
+			}
+			return parse(charset.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+		}
+		final BuilderHandler handler = new BuilderHandler();
+		final XMLParser parser = new XMLParser(handler, charset);
+		long position = 0;
+		MappedByteBuffer window = map(channel, position, windowSize);
+		Skipper skipper = new Skipper.Bytes(window);
+		final int content = rootContent(skipper);
+		if(content >= 0) {
+			parser.parse(slice(window, 0, content), charset);
+			final Children children = new Children(handler.builder(), runLength(size));
+			for(int p = content ; ; ) {
+				final int end = children.split(skipper, p);
+				final int runs = end < 0 ? children.count - 1 : children.count;
+				for(int i = 0 ; i < runs ; ++i) {
+					final int to = i + 1 < children.count ? children.starts[i + 1] : end;
+					children.fork(new ByteRun(handler.builder(), slice(window, children.starts[i], to + 1), charset));
+				}
+				if(end >= 0) {
+					position += end;
+					break;
+				}
+				p = children.starts[runs];
+				if(p == 0 || position + window.limit() == size) {
+					// a child larger than a window, or a document that is cut short
+					position += p;
+					break;
+				}
+				position += p;
+				// map the next window from the start of the run that was cut short
+				window = map(channel, position, windowSize);
+				skipper = new Skipper.Bytes(window);
+				p = 0;
+			}
+			children.join();
+		}
+		parse(parser, channel, charset, position, windowSize);
+		return handler.document();
+	}
+
+	// parse the rest of the file from position on the calling thread
+	private static void parse(@Nonnull XMLParser parser, @Nonnull FileChannel channel, @Nonnull Charset charset, long position, long windowSize) throws IOException {
+		final long size = channel.size();
+		while(position < size) {
+			final MappedByteBuffer window = map(channel, position, windowSize);
+			parser.parse(window, charset);
+			if(window.position() == 0) {
+				// a multi byte sequence truncated by the end of the file
+				break;
+			}
+			position += window.position();
+		}
+	}
+
+	private static MappedByteBuffer map(@Nonnull FileChannel channel, long position, long windowSize) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, channel.size() - position));
+	}
+
+	private static ByteBuffer slice(@Nonnull ByteBuffer buffer, int from, int to) {
+		final ByteBuffer slice = buffer.duplicate();
+		slice.limit(to);
+		slice.position(from);
+		return slice;
+	}
+
+	private int runLength(long length) {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(minRunLength, length / (pool.getParallelism() * 4)));
+	}
+
+	/**
+	 * @return the index after the root's start tag, or -1 if there is no root or it is empty
+	 */
+	static int rootContent(@Nonnull Skipper skipper) {
+		for(int p = skipper.indexOf('<', 0) ; p < skipper.length ; p = skipper.indexOf('<', p)) {
+			p = skipper.markup(p);
+			if(p < 0 || skipper.kind == Skipper.END_TAG || skipper.kind == Skipper.EMPTY_ELEMENT) {
+				return -1;
+			} else if(skipper.kind == Skipper.START_TAG) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The root's content, divided into runs of whole children.
+	 */
+	private final class Children {
+
+		private final Container.Builder root;
+
+		private final int runLength;
+
+		// the start of each run, the text that follows a child belongs to the run the child is in
+		int[] starts = new int[64];
+
+		int count;
+
+		private final List<Run> runs = new ArrayList<Run>();
+
+		Children(@Nonnull Container.Builder root, int runLength) {
+			this.root = root;
+			this.runLength = runLength;
+		}
+
+		/**
+		 * Find the runs of children that start at or after p.
+		 *
+		 * @return the index of the root's end tag, or -1 if the input ends first, the last run found
+		 * is then cut short
+		 */
+		int split(@Nonnull Skipper skipper, int p) {
+			count = 0;
+			add(p);
+			for(int start = p ; ; ) {
+				p = skipper.indexOf('<', p);
+				if(p + 1 >= skipper.length) {
+					return -1;
+				}
+				final char c = skipper.at(p + 1);
+				if(c == '/') {
+					return p;
+				} else if(c == '!' || c == '?') {
+					p = skipper.markup(p);
+				} else {
+					if(p - start >= runLength) {
+						add(p);
+						start = p;
+					}
+					p = skipper.element(p);
+				}
+				if(p < 0) {
+					return -1;
+				}
+			}
+		}
+
+		private void add(int start) {
+			if(count == starts.length) {
+				final int[] grown = new int[count << 1];
+				System.arraycopy(starts, 0, grown, 0, count);
+				starts = grown;
+			}
+			starts[count++] = start;
+		}
+
+		void fork(@Nonnull Run run) {
+			pool.execute(run);
+			runs.add(run);
+		}
+
+		/**
+		 * Add the nodes of every run forked so far to the root, in order.
+		 */
+		void join() {
+			for(Run run : runs) {
+				for(Node node : run.join()) {
+					root.addContent(node);
+				}
+			}
+			runs.clear();
+		}
+	}
+
+	/**
+	 * Parses a run of children, which ends with the &lt; that starts the next run or the root's
+	 * end tag so that text after the last child is reported.
+	 */
+	private abstract static class Run extends RecursiveTask<List<Node>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Container.Builder root;
+
+		Run(@Nonnull Container.Builder root) {
+			this.root = root;
+		}
+
+		@Override
+		protected List<Node> compute() {
+			final ContentBuilder builder = new ContentBuilder(root);
+			final BuilderHandler handler = new BuilderHandler(builder);
+			parse(handler);
+			if(handler.builder() != builder) {
+				throw new IllegalStateException("Run of children ends inside an element");
+			}
+			return builder.nodes;
+		}
+
+		abstract void parse(@Nonnull ParseHandler handler);
+	}
+
+	private static final class CharRun extends Run {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String source;
+
+		private final int from, to;
+
+		CharRun(@Nonnull Container.Builder root, @Nonnull String source, int from, int to) {
+			super(root);
+			this.source = source;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		void parse(@Nonnull ParseHandler handler) {
+			new XMLScanner(handler).parse(source.substring(from, to + 1));
+		}
+	}
+
+	private static final class ByteRun extends Run {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer;
+
+		private final Charset charset;
+
+		ByteRun(@Nonnull Container.Builder root, @Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+			super(root);
+			this.buffer = buffer;
+			this.charset = charset;
+		}
+
+		@Override
+		void parse(@Nonnull ParseHandler handler) {
+			new XMLParser(handler, charset).parse(buffer, charset);
+		}
+	}
+}
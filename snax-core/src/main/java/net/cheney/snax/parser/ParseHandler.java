@@ -0,0 +1,67 @@
+package net.cheney.snax.parser;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the events {@link XMLParser} produces, in document order. Pass an implementation to 
+ * {@link XMLParser#XMLParser(ParseHandler)} to consume a document without building a tree, 
+ * {@link BuilderHandler} is the implementation that builds a {@link net.cheney.snax.model.Document}.
+ * <p>
+ * Names, text and values are passed as a view of length chars of seq starting at offset, nothing 
+ * is copied into a String unless the handler does so. seq may be the input itself, a buffer the 
+ * parser decoded bytes into or a buffer holding a value that spanned two chunks of input, so 
+ * the view is only valid until the callback returns and seq must not be modified or retained. 
+ * Use seq.subSequence(offset, offset + length) to keep a copy.
+ * <p>
+ * Names are passed as they appear in the document, namespace prefixes are not resolved and 
+ * xmlns attributes are reported like any other. Throwing a RuntimeException from a callback 
+ * abandons the parse.
+ */
+public interface ParseHandler {
+
+	/**
+	 * An element start tag was opened, the view is its qualified name. Its attributes follow.
+	 */
+	void startElement(@Nonnull CharSequence seq, int offset, int length);
+
+	/**
+	 * The view is the qualified name of an attribute, its value follows.
+	 */
+	void attributeName(@Nonnull CharSequence seq, int offset, int length);
+
+	/**
+	 * The view is the value of the attribute named by the previous {@link #attributeName(CharSequence, int, int)}, 
+	 * entities are not expanded.
+	 */
+	void attributeValue(@Nonnull CharSequence seq, int offset, int length);
+
+	/**
+	 * The start tag opened by the last {@link #startElement(CharSequence, int, int)} was closed, 
+	 * all of its attributes have been reported.
+	 */
+	void endAttributes();
+
+	/**
+	 * The most recently started element that has not ended was closed, by an end tag or by the 
+	 * /&gt; of an empty element tag.
+	 */
+	void endElement();
+
+	/**
+	 * Text or CDATA content, whitespace only text is not reported. A text run may be reported 
+	 * in more than one call, for example either side of a CDATA section.
+	 */
+	void characters(@Nonnull CharSequence seq, int offset, int length);
+
+	/**
+	 * The view is the content of a comment, between &lt;!-- and --&gt;, which may be empty. 
+	 * Comments are reported in the prolog and after the root element as well as in content.
+	 */
+	void comment(@Nonnull CharSequence seq, int offset, int length);
+
+	/**
+	 * The view is the target and data of the processing instruction, separated by whitespace.
+	 */
+	void processingInstruction(@Nonnull CharSequence seq, int offset, int length);
+
+}
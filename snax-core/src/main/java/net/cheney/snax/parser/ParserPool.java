@@ -0,0 +1,157 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import net.cheney.snax.model.BuilderStack;
+import net.cheney.snax.model.Document;
+
+/**
+ * Parses many small documents on the threads that share it. Each thread is given an 
+ * {@link XMLScanner} and an {@link XMLParser} the first time it parses, and reuses them, their 
+ * buffers and a {@link BuilderStack} for every document after that, so once they have grown to 
+ * fit the documents only the trees returned are allocated. Input in a charset that cannot be 
+ * parsed directly is decoded into a {@link CharBuffer} that each thread reuses, by a 
+ * {@link CharsetDecoder} it keeps for each charset.
+ * <p>
+ * A buffer that has grown past {@link #DEFAULT_MAX_RETAINED} chars, or the limit given, is let go 
+ * of once the document it was grown for has been parsed, as is the input, so one large document 
+ * is not held for the life of the thread.
+ */
+@ThreadSafe
+public final class ParserPool {
+
+	public static final int DEFAULT_MAX_RETAINED = 64 * 1024;
+
+	private final int maxRetained;
+
+	private final ThreadLocal<Parsers> parsers = new ThreadLocal<Parsers>() {
+		@Override
+		protected Parsers initialValue() {
+			return new Parsers();
+		}
+	};
+
+	public ParserPool() {
+		this(DEFAULT_MAX_RETAINED);
+	}
+
+	/**
+	 * @param maxRetained the most chars, or bytes, a buffer may hold and still be kept for the next document
+	 * @throws IllegalArgumentException if maxRetained is negative
+	 */
+	public ParserPool(int maxRetained) {
+		if(maxRetained < 0) {
+			throw new IllegalArgumentException(String.format("Invalid maximum retained size %d", maxRetained));
+		}
+		this.maxRetained = maxRetained;
+	}
+
+	public Document parse(@Nonnull CharSequence seq) {
+		final Parsers p = parsers.get();
+		try {
+			p.handler.reset();
+			p.scanner.parse(seq);
+			return p.handler.document();
+		} finally {
+			p.release(maxRetained);
+		}
+	}
+
+	/**
+	 * UTF-8, ISO-8859-1 and US-ASCII input is parsed directly from the buffer, other
+	 * charsets are decoded into a {@link CharBuffer} first. Malformed input is replaced 
+	 * with U+FFFD, as {@link Charset#decode(ByteBuffer)} would.
+	 */
+	public Document parse(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+		final Parsers p = parsers.get();
+		try {
+			if(XMLParser.supports(charset)) {
+				p.parser.reset();
+				p.parser.parse(buffer, charset);
+			} else {
+				p.handler.reset();
+				p.scanner.parse(p.decode(buffer, charset));
+			}
+			return p.handler.document();
+		} finally {
+			p.release(maxRetained);
+		}
+	}
+
+	/**
+	 * Parse buffer in the charset {@link EncodingDetector#detect(ByteBuffer)} finds from its byte 
+	 * order mark or XML declaration, see {@link #parse(ByteBuffer, Charset)}.
+	 *
+	 * @throws IllegalArgumentException if the declared encoding is not supported
+	 */
+	public Document parse(@Nonnull ByteBuffer buffer) {
+		return parse(buffer, EncodingDetector.detect(buffer));
+	}
+
+	// the chars and bytes held by the calling thread's buffers, for testing
+	int retained() {
+		return parsers.get().retained();
+	}
+
+	private static final class Parsers {
+
+		final BuilderHandler handler = new BuilderHandler(new BuilderStack());
+
+		final XMLScanner scanner = new XMLScanner(handler);
+
+		final XMLParser parser = new XMLParser(handler);
+
+		private final Map<Charset, CharsetDecoder> decoders = new HashMap<Charset, CharsetDecoder>(4);
+
+		// reused for every document that is decoded, the handler copies the views of it that it keeps
+		private CharBuffer chars = CharBuffer.allocate(0);
+
+		CharBuffer decode(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+			CharsetDecoder decoder = decoders.get(charset);
+			if(decoder == null) {
+				decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+				decoders.put(charset, decoder);
+			}
+			decoder.reset();
+			final int capacity = (int) (buffer.remaining() * (double) decoder.maxCharsPerByte()) + 1;
+			if(chars.capacity() < capacity) {
+				chars = CharBuffer.allocate(capacity);
+			}
+			chars.clear();
+			CoderResult result = decoder.decode(buffer, chars, true);
+			if(!result.isUnderflow() || !(result = decoder.flush(chars)).isUnderflow()) {
+				// there is room for every char, and errors are replaced
+				try {
+					result.throwException();
+				} catch (CharacterCodingException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			chars.flip();
+			return chars;
+		}
+
+		int retained() {
+			return scanner.retained() + parser.retained() + chars.capacity();
+		}
+
+		void release(int max) {
+			scanner.release(max);
+			parser.release(max);
+			if(chars.capacity() > max) {
+				chars = CharBuffer.allocate(0);
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package net.cheney.snax.parser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The parts of a document to build, as paths from the root such as order/id or
+ * order/lines/line/&#64;sku. An element at the end of a path is built whole, an attribute at the
+ * end of a path is kept on its element, and the elements on the way to either are built with
+ * only the attributes asked for and their namespace declarations. Everything else is skipped
+ * without being reported, see {@link XMLScanner#XMLScanner(ParseHandler, Projection)}.
+ * <p>
+ * Each step is compared with qualified names as they are written in the document.
+ */
+@Immutable
+public final class Projection {
+
+	private final Step root = new Step();
+
+	/**
+	 * @throws IllegalArgumentException if a path is empty, has an empty step or an attribute that is not its last step
+	 */
+	public Projection(@Nonnull String... paths) {
+		for(String path : paths) {
+			final String[] steps = path.split("/", -1);
+			Step step = root;
+			for(int i = 0 ; i < steps.length ; ++i) {
+				final String name = steps[i];
+				if(name.isEmpty() || name.equals("@")) {
+					throw new IllegalArgumentException(String.format("Path [%s] has an empty step", path));
+				} else if(name.charAt(0) == '@') {
+					if(i == 0 || i + 1 < steps.length) {
+						throw new IllegalArgumentException(String.format("Path [%s] has an attribute before its last step", path));
+					}
+					step.attributes = append(step.attributes, name.substring(1));
+				} else {
+					step = step.child(name);
+					if(i + 1 == steps.length) {
+						step.whole = true;
+					}
+				}
+			}
+		}
+	}
+
+	Step root() {
+		return root;
+	}
+
+	private static String[] append(@Nonnull String[] array, @Nonnull String s) {
+		final String[] appended = new String[array.length + 1];
+		System.arraycopy(array, 0, appended, 0, array.length);
+		appended[array.length] = s;
+		return appended;
+	}
+
+	private static boolean regionEquals(@Nonnull String s, @Nonnull char[] chars, int offset, int length) {
+		if(s.length() != length) {
+			return false;
+		}
+		for(int i = 0 ; i < length ; ++i) {
+			if(s.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * An element on a path. Only modified while the projection is constructed.
+	 */
+	static final class Step {
+
+		private String[] names = new String[0];
+
+		private Step[] children = new Step[0];
+
+		private String[] attributes = new String[0];
+
+		// set if the element is at the end of a path, so all of its content is built
+		private boolean whole;
+
+		private Step child(@Nonnull String name) {
+			for(int i = 0 ; i < names.length ; ++i) {
+				if(names[i].equals(name)) {
+					return children[i];
+				}
+			}
+			final Step child = new Step();
+			names = append(names, name);
+			final Step[] grown = new Step[children.length + 1];
+			System.arraycopy(children, 0, grown, 0, children.length);
+			grown[children.length] = child;
+			children = grown;
+			return child;
+		}
+
+		boolean whole() {
+			return whole;
+		}
+
+		/**
+		 * @return the step for the child element whose name is chars[offset, offset + length), or null if it is not on a path
+		 */
+		Step child(@Nonnull char[] chars, int offset, int length) {
+			if(whole) {
+				return this;
+			}
+			for(int i = 0 ; i < names.length ; ++i) {
+				if(regionEquals(names[i], chars, offset, length)) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return true if the attribute whose name is chars[offset, offset + length) is kept
+		 */
+		boolean keeps(@Nonnull char[] chars, int offset, int length) {
+			if(whole || XMLScanner.isNamespaceDeclaration(chars, offset, length)) {
+				// namespace declarations are needed to resolve the names that are kept
+				return true;
+			}
+			for(String attribute : attributes) {
+				if(regionEquals(attribute, chars, offset, length)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package net.cheney.snax.parser;
+
+import java.util.Queue;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.model.Container;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.Node;
+
+/**
+ * Follows a path through a document and passes the events of each record, an element at the end 
+ * of the path, to a {@link BuilderHandler} whose outermost builder is the {@link Ancestors}. Each 
+ * record is queued as soon as it is complete, see {@link RecordIterator}.
+ */
+final class RecordHandler implements ParseHandler {
+
+	private final String[] steps;
+
+	private final Queue<Element> records;
+
+	private final Ancestors ancestors = new Ancestors();
+
+	private BuilderHandler record = new BuilderHandler(ancestors);
+
+	private boolean inRecord = false;
+
+	// the number of open elements, and how many of the outermost of them match the path
+	private int depth, matched;
+
+	private String attributeName;
+
+	/**
+	 * @param steps the names on the path from the root, * matches any name
+	 * @param records the queue each record is added to
+	 */
+	RecordHandler(@Nonnull String[] steps, @Nonnull Queue<Element> records) {
+		this.steps = steps;
+		this.records = records;
+	}
+
+	/**
+	 * @return the steps of path, /feed/entry
+	 * @throws IllegalArgumentException if path is not absolute or has an empty step
+	 */
+	static String[] steps(@Nonnull String path) {
+		final String[] steps = path.split("/", -1);
+		if(steps.length < 2 || !steps[0].isEmpty()) {
+			throw new IllegalArgumentException(String.format("Path [%s] is not absolute", path));
+		}
+		for(int i = 1 ; i < steps.length ; ++i) {
+			if(steps[i].isEmpty()) {
+				throw new IllegalArgumentException(String.format("Path [%s] has an empty step", path));
+			}
+		}
+		final String[] names = new String[steps.length - 1];
+		System.arraycopy(steps, 1, names, 0, names.length);
+		return names;
+	}
+
+	/**
+	 * Return to the start of a document, dropping any record that is partly built.
+	 */
+	void reset() {
+		record = new BuilderHandler(ancestors);
+		inRecord = false;
+		depth = matched = 0;
+		ancestors.undeclareAll();
+	}
+
+	@Override
+	public void startElement(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.startElement(seq, offset, length);
+			return;
+		}
+		if(matched == depth && matched < steps.length && matches(steps[matched], seq, offset, length)) {
+			++matched;
+			if(matched == steps.length) {
+				inRecord = true;
+				record.startElement(seq, offset, length);
+			}
+		}
+		++depth;
+	}
+
+	@Override
+	public void attributeName(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.attributeName(seq, offset, length);
+		} else if(matched == depth) {
+			attributeName = seq.subSequence(offset, offset + length).toString();
+		}
+	}
+
+	@Override
+	public void attributeValue(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.attributeValue(seq, offset, length);
+		} else if(matched == depth && attributeName.startsWith("xmlns")) {
+			final String prefix = attributeName.startsWith("xmlns:") ? attributeName.substring(6) : Namespace.BLANK_PREFIX;
+			ancestors.declare(depth, prefix, seq.subSequence(offset, offset + length).toString());
+		}
+	}
+
+	@Override
+	public void endAttributes() {
+		if(inRecord) {
+			record.endAttributes();
+		}
+	}
+
+	@Override
+	public void endElement() {
+		if(inRecord) {
+			record.endElement();
+			if(record.builder() != ancestors) {
+				return;
+			}
+			inRecord = false;
+		}
+		ancestors.undeclare(depth);
+		if(matched == depth) {
+			--matched;
+		}
+		--depth;
+	}
+
+	@Override
+	public void characters(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.characters(seq, offset, length);
+		}
+	}
+
+	@Override
+	public void comment(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.comment(seq, offset, length);
+		}
+	}
+
+	@Override
+	public void processingInstruction(@Nonnull CharSequence seq, int offset, int length) {
+		if(inRecord) {
+			record.processingInstruction(seq, offset, length);
+		}
+	}
+
+	private boolean matches(@Nonnull String step, @Nonnull CharSequence seq, int offset, int length) {
+		if(step.equals("*")) {
+			return true;
+		} else if(step.length() != length) {
+			return false;
+		}
+		for(int i = 0 ; i < length ; ++i) {
+			if(step.charAt(i) != seq.charAt(offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stands in for the elements on the path, it resolves the prefixes they declare and queues
+	 * each record as it is built.
+	 */
+	private final class Ancestors implements Container.Builder {
+
+		private final Container.Builder document = Document.builder();
+
+		// the depth of the element that declared each namespace, innermost last
+		private int[] depths = new int[8];
+
+		private Namespace[] namespaces = new Namespace[8];
+
+		private int declared;
+
+		void declare(int depth, @Nonnull String prefix, @Nonnull String uri) {
+			if(declared == depths.length) {
+				final int[] grownDepths = new int[declared << 1];
+				final Namespace[] grownNamespaces = new Namespace[declared << 1];
+				System.arraycopy(depths, 0, grownDepths, 0, declared);
+				System.arraycopy(namespaces, 0, grownNamespaces, 0, declared);
+				depths = grownDepths;
+				namespaces = grownNamespaces;
+			}
+			depths[declared] = depth;
+			namespaces[declared++] = Namespace.valueOf(prefix, uri);
+		}
+
+		void undeclareAll() {
+			while(declared > 0) {
+				namespaces[--declared] = null;
+			}
+		}
+
+		void undeclare(int depth) {
+			while(declared > 0 && depths[declared - 1] == depth) {
+				namespaces[--declared] = null;
+			}
+		}
+
+		@Override
+		public Namespace declaredNamespaceForPrefix(@Nonnull String prefix) {
+			for(int i = declared - 1 ; i >= 0 ; --i) {
+				if(namespaces[i].prefix().equals(prefix)) {
+					return namespaces[i];
+				}
+			}
+			return document.declaredNamespaceForPrefix(prefix);
+		}
+
+		@Override
+		public Element.Builder doElementStart(@Nonnull CharSequence seq) {
+			return Element.builder(this, seq);
+		}
+
+		@Override
+		public void addContent(@Nonnull Node record) {
+			records.add((Element) record);
+		}
+
+		@Override
+		public void doAttributeName(@Nonnull CharSequence seq) {
+			throw new IllegalStateException(String.format("Unable to add attribute name [%s]", seq));
+		}
+
+		@Override
+		public void doAttributeValue(@Nonnull CharSequence seq) {
+			throw new IllegalStateException(String.format("Unable to add attribute value [%s]", seq));
+		}
+
+		@Override
+		public void doCharacters(@Nonnull CharSequence seq) {
+			throw new IllegalStateException(String.format("Unable to add characters value [%s]", seq));
+		}
+
+		@Override
+		public void doComment(@Nonnull CharSequence seq) {
+			throw new IllegalStateException(String.format("Unable to add comment [%s]", seq));
+		}
+
+		@Override
+		public void doProcessingInstruction(@Nonnull CharSequence seq) {
+			throw new IllegalStateException(String.format("Unable to add processing instruction [%s]", seq));
+		}
+
+		@Override
+		public Container.Builder doElementEnd() {
+			throw new IllegalStateException();
+		}
+	}
+}
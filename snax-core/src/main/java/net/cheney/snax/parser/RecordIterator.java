@@ -0,0 +1,127 @@
+package net.cheney.snax.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.model.Element;
+
+/**
+ * Reads a document a chunk at a time and returns each element at the end of a path as it is
+ * completed, without building the rest of the document. Only the elements on the path to the
+ * current record and the namespaces they declare are held, so a document of any size is read
+ * in constant memory as long as each record fits.
+ * <p>
+ * A path is absolute, /feed/entry, and each step is compared with qualified names as they are
+ * written in the document, * matches any name. The namespaces declared on the path are in scope
+ * in every record. The iterator closes its input once it is exhausted, call {@link #close()} to
+ * stop reading early.
+ */
+public final class RecordIterator implements Iterator<Element>, Closeable {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private final XMLParser parser;
+
+	private final ReadableByteChannel channel;
+
+	private final ByteBuffer bytes;
+
+	private final CharSequence chars;
+
+	// the next chunk of chars to be parsed
+	private int position;
+
+	private final Queue<Element> records = new ArrayDeque<Element>();
+
+	private boolean open = true;
+
+	/**
+	 * Read the records from channel, which is closed when the last has been read.
+	 *
+	 * @throws IllegalArgumentException if path is not absolute
+	 */
+	public RecordIterator(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, @Nonnull String path) {
+		this.parser = new XMLParser(new RecordHandler(RecordHandler.steps(path), records), charset);
+		this.channel = channel;
+		this.bytes = ByteBuffer.allocate(CHUNK_SIZE);
+		this.chars = null;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if path is not absolute
+	 */
+	public RecordIterator(@Nonnull CharSequence seq, @Nonnull String path) {
+		this.parser = new XMLParser(new RecordHandler(RecordHandler.steps(path), records));
+		this.channel = null;
+		this.bytes = null;
+		this.chars = seq;
+	}
+
+	/**
+	 * @throws UncheckedIOException if the input cannot be read
+	 * @throws IllegalStateException if the document ends before it is complete
+	 */
+	@Override
+	public boolean hasNext() {
+		try {
+			while(records.isEmpty() && open) {
+				feed();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return !records.isEmpty();
+	}
+
+	@Override
+	public Element next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return records.remove();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() throws IOException {
+		open = false;
+		if(channel != null) {
+			channel.close();
+		}
+	}
+
+	// parse the next chunk of input, the records it completes are queued
+	private void feed() throws IOException {
+		if(channel == null) {
+			if(position < chars.length()) {
+				final int end = Math.min(position + CHUNK_SIZE, chars.length());
+				parser.parse(chars.subSequence(position, end));
+				position = end;
+				return;
+			}
+		} else {
+			bytes.clear();
+			if(channel.read(bytes) >= 0) {
+				bytes.flip();
+				parser.feed(bytes);
+				return;
+			}
+		}
+		close();
+		parser.endOfInput();
+	}
+}
@@ -0,0 +1,228 @@
+package net.cheney.snax.parser;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Finds where markup and whole elements end without parsing them. Nothing is checked or reported,
+ * a tag is bracketed by its quotes and closing &gt;, and comments, declarations, CDATA sections
+ * and processing instructions end where {@link XMLScanner} would end them.
+ */
+abstract class Skipper {
+
+	// the kinds of markup returned by markup(int)
+	static final int START_TAG = 0, EMPTY_ELEMENT = 1, END_TAG = 2, OTHER = 3;
+
+	final int length;
+
+	// the kind of the markup skipped by the last call to markup(int)
+	int kind;
+
+	Skipper(int length) {
+		this.length = length;
+	}
+
+	abstract char at(int p);
+
+	/**
+	 * @return the index of the next c at or after p, or length
+	 */
+	abstract int indexOf(char c, int p);
+
+	/**
+	 * @param p the index of a &lt;
+	 * @return the index after the markup it starts, or -1 if the input ends first
+	 */
+	final int markup(int p) {
+		if(p + 2 >= length) {
+			return -1;
+		}
+		final char c = at(p + 1);
+		kind = OTHER;
+		if(c == '/') {
+			kind = END_TAG;
+			return after(indexOf('>', p + 2));
+		} else if(c == '?') {
+			p = indexOf('?', p + 2);
+			return p + 1 < length ? p + 2 : -1;
+		} else if(c == '!') {
+			final char d = at(p + 2);
+			return d == '[' ? cdata(p + 3) : d == '-' ? comment(p + 3) : declaration(p + 2);
+		}
+		for(p += 1 ; p < length ; ++p) {
+			final char t = at(p);
+			if(t == '>') {
+				kind = at(p - 1) == '/' ? EMPTY_ELEMENT : START_TAG;
+				return p + 1;
+			} else if(t == '\'' || t == '"') {
+				p = indexOf(t, p + 1);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param p the index of the &lt; of a start tag
+	 * @return the index after the element's end tag, or -1 if the input ends first
+	 */
+	final int element(int p) {
+		p = markup(p);
+		if(p < 0 || kind != START_TAG) {
+			return p;
+		}
+		p = content(p);
+		return p < 0 ? -1 : markup(p);
+	}
+
+	/**
+	 * @param p the index after a start tag
+	 * @return the index of the &lt; of the element's end tag, or -1 if the input ends first
+	 */
+	final int content(int p) {
+		for(int depth = 1 ; ; ) {
+			p = indexOf('<', p);
+			if(p == length) {
+				return -1;
+			}
+			final int end = markup(p);
+			if(end < 0) {
+				return -1;
+			}
+			if(kind == START_TAG) {
+				++depth;
+			} else if(kind == END_TAG && --depth == 0) {
+				return p;
+			}
+			p = end;
+		}
+	}
+
+	private int after(int p) {
+		return p < length ? p + 1 : -1;
+	}
+
+	// as in XMLScanner a comment ends at the next -->
+	private int comment(int p) {
+		for(p += 1 ; ; ++p) {
+			p = indexOf('-', p);
+			if(p + 2 >= length) {
+				return -1;
+			}
+			if(at(p + 1) == '-' && at(p + 2) == '>') {
+				return p + 3;
+			}
+		}
+	}
+
+	// as in XMLScanner a DOCTYPE ends at the first > outside an internal subset
+	private int declaration(int p) {
+		for( ; p < length ; ++p) {
+			final char c = at(p);
+			if(c == '>') {
+				return p + 1;
+			} else if(c == '[') {
+				p = indexOf(']', p + 1);
+				return p < length ? after(indexOf('>', p + 1)) : -1;
+			}
+		}
+		return -1;
+	}
+
+	private int cdata(int p) {
+		p = indexOf('[', p);
+		for(p += 1 ; p < length ; ) {
+			p = indexOf(']', p);
+			if(p + 2 >= length) {
+				return -1;
+			}
+			if(at(p + 1) != ']') {
+				p += 2;
+			} else if(at(p + 2) == '>') {
+				return p + 3;
+			} else {
+				// as in XMLScanner the char after ]] is consumed even if it is a ]
+				p += 3;
+			}
+		}
+		return -1;
+	}
+
+	static final class CharArray extends Skipper {
+
+		private final char[] chars;
+
+		private final int base;
+
+		/**
+		 * @param chars indexed from base to base + length
+		 */
+		CharArray(@Nonnull char[] chars, int base, int length) {
+			super(length);
+			this.chars = chars;
+			this.base = base;
+		}
+
+		@Override
+		char at(int p) {
+			return chars[base + p];
+		}
+
+		@Override
+		int indexOf(char c, int p) {
+			final char[] chars = this.chars;
+			final int base = this.base, length = this.length;
+			while(p < length && chars[base + p] != c) {
+				++p;
+			}
+			return p;
+		}
+	}
+
+	static final class Chars extends Skipper {
+
+		private final String string;
+
+		Chars(@Nonnull String string) {
+			super(string.length());
+			this.string = string;
+		}
+
+		@Override
+		char at(int p) {
+			return string.charAt(p);
+		}
+
+		@Override
+		int indexOf(char c, int p) {
+			final int i = string.indexOf(c, p);
+			return i < 0 ? length : i;
+		}
+	}
+
+	/**
+	 * Every delimiter is ASCII, so bytes in UTF-8 or a single byte encoding are skipped undecoded.
+	 */
+	static final class Bytes extends Skipper {
+
+		private final ByteBuffer buffer;
+
+		/**
+		 * @param buffer indexed from 0 to its limit
+		 */
+		Bytes(@Nonnull ByteBuffer buffer) {
+			super(buffer.limit());
+			this.buffer = buffer;
+		}
+
+		@Override
+		char at(int p) {
+			return (char) (buffer.get(p) & 0xFF);
+		}
+
+		@Override
+		int indexOf(char c, int p) {
+			return p < length ? Delimiters.indexOf(buffer, p, length, (byte) c) : length;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package net.cheney.snax.parser;
+
+import java.nio.CharBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Canonical Strings for element and attribute names. A name is hashed straight from the chars 
+ * the parser reports and is only copied into a String the first time it is seen, after that the 
+ * same String is returned.
+ * <p>
+ * The table has a fixed number of slots, a name that hashes to a full neighbourhood replaces 
+ * the name in it that was added first, so input with an unbounded number of distinct names 
+ * cannot grow it. Names longer than {@link #MAX_SYMBOL_LENGTH} are never kept.
+ * <p>
+ * A table may be shared by parsers on different threads without locking. Slots are read and 
+ * written racily, which is safe because Strings are immutable, the worst case is that two 
+ * threads each copy the same name or that a name other than the first added is replaced.
+ */
+@ThreadSafe
+public final class SymbolTable {
+
+	public static final int DEFAULT_CAPACITY = 2048;
+	
+	public static final int MAX_SYMBOL_LENGTH = 64;
+	
+	private static final int MAX_CAPACITY = 1 << 30;
+	
+	// slots searched for a name before the oldest of them is replaced
+	private static final int PROBES = 4;
+	
+	private final String[] symbols;
+	
+	// when the name in each slot was added, by the count of names added so far
+	private final int[] added;
+	
+	private int count = 0;
+	
+	private final int mask;
+	
+	public SymbolTable() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity the number of names kept, rounded up to a power of two
+	 */
+	public SymbolTable(int capacity) {
+		if(capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException(String.format("Capacity %d is not between 1 and %d", capacity, MAX_CAPACITY));
+		}
+		final int size = Integer.highestOneBit(capacity) < capacity ? Integer.highestOneBit(capacity) << 1 : capacity;
+		this.symbols = new String[size];
+		this.added = new int[size];
+		this.mask = size - 1;
+	}
+	
+	/**
+	 * @return a String equal to the length chars of seq starting at offset
+	 */
+	public String symbol(@Nonnull CharSequence seq, int offset, int length) {
+		if(seq instanceof CharBuffer && ((CharBuffer) seq).hasArray()) {
+			final CharBuffer buffer = (CharBuffer) seq;
+			return symbol(buffer.array(), buffer.arrayOffset() + buffer.position() + offset, length);
+		}
+		if(length > MAX_SYMBOL_LENGTH) {
+			return copy(seq, offset, length);
+		}
+		int hash = 0;
+		for(int i = offset, end = offset + length ; i < end ; ++i) {
+			hash = 31 * hash + seq.charAt(i);
+		}
+		final String[] symbols = this.symbols;
+		final int index = (hash ^ (hash >>> 16)) & mask;
+		for(int probe = 0 ; probe < PROBES ; ++probe) {
+			final int slot = (index + probe) & mask;
+			final String symbol = symbols[slot];
+			if(symbol == null) {
+				return add(slot, copy(seq, offset, length));
+			}
+			// String.hashCode is the same polynomial, and is cached
+			if(symbol.hashCode() == hash && matches(symbol, seq, offset, length)) {
+				return symbol;
+			}
+		}
+		return add(oldest(index), copy(seq, offset, length));
+	}
+	
+	/**
+	 * @return a String equal to chars[offset, offset + length)
+	 */
+	public String symbol(@Nonnull char[] chars, int offset, int length) {
+		if(length > MAX_SYMBOL_LENGTH) {
+			return new String(chars, offset, length);
+		}
+		int hash = 0;
+		for(int i = offset, end = offset + length ; i < end ; ++i) {
+			hash = 31 * hash + chars[i];
+		}
+		final String[] symbols = this.symbols;
+		final int index = (hash ^ (hash >>> 16)) & mask;
+		for(int probe = 0 ; probe < PROBES ; ++probe) {
+			final int slot = (index + probe) & mask;
+			final String symbol = symbols[slot];
+			if(symbol == null) {
+				return add(slot, new String(chars, offset, length));
+			}
+			if(symbol.hashCode() == hash && matches(symbol, chars, offset, length)) {
+				return symbol;
+			}
+		}
+		return add(oldest(index), new String(chars, offset, length));
+	}
+	
+	/**
+	 * @return the number of names held
+	 */
+	public int size() {
+		int size = 0;
+		for(String symbol : symbols) {
+			if(symbol != null) {
+				++size;
+			}
+		}
+		return size;
+	}
+	
+	public int capacity() {
+		return symbols.length;
+	}
+	
+	// the slot of the neighbourhood starting at index whose name was added first
+	private int oldest(int index) {
+		final int count = this.count;
+		int oldest = index;
+		for(int probe = 1 ; probe < PROBES ; ++probe) {
+			final int slot = (index + probe) & mask;
+			// compared by age rather than by count, which may wrap
+			if(count - added[slot] > count - added[oldest]) {
+				oldest = slot;
+			}
+		}
+		return oldest;
+	}
+	
+	private String add(int slot, @Nonnull String symbol) {
+		added[slot] = ++count;
+		symbols[slot] = symbol;
+		return symbol;
+	}
+	
+	private static boolean matches(@Nonnull String symbol, @Nonnull CharSequence seq, int offset, int length) {
+		if(symbol.length() != length) {
+			return false;
+		}
+		for(int i = 0 ; i < length ; ++i) {
+			if(symbol.charAt(i) != seq.charAt(offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean matches(@Nonnull String symbol, @Nonnull char[] chars, int offset, int length) {
+		if(symbol.length() != length) {
+			return false;
+		}
+		for(int i = 0 ; i < length ; ++i) {
+			if(symbol.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static String copy(@Nonnull CharSequence seq, int offset, int length) {
+		return seq.subSequence(offset, offset + length).toString();
+	}
+}
@@ -0,0 +1,141 @@
+package net.cheney.snax.parser;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The character classes of the XML 1.0 grammar, shared by {@link XMLParser} and {@link XMLScanner}.
+ * Each class is a few ranges of chars held in a {@link CharClass} of a few hundred bytes, ASCII
+ * chars are looked up in a table of 128 flags.
+ */
+final class XMLChars {
+
+	private static final CharClass NAME_START_CHARS = new CharClass(
+			':', ':', 'A', 'Z', '_', '_', 'a', 'z',
+			'\u00C0', '\u00D6', '\u00D8', '\u00F6', '\u00F8', '\u02FF', '\u0370', '\u037D',
+			'\u037F', '\u1FFF', '\u200C', '\u200D', '\u2070', '\u218F', '\u2C00', '\u2FEF',
+			'\u3001', '\uD7FF', '\uF900', '\uFDCF', '\uFDF0', '\uFFFD');
+
+	// TODO, the specification has 203F to 2040 rather than 023F to 2040
+	private static final CharClass NAME_CHARS = new CharClass(NAME_START_CHARS,
+			'-', '.', '0', '9', '\u00B7', '\u00B7', '\u0300', '\u036F', '\u023F', '\u2040');
+
+	private static final CharClass CHARS = new CharClass(
+			'\t', '\n', '\r', '\r', ' ', '\uD7FF', '\uE000', '\uFFFD');
+
+	// the flags of the classes each ASCII char is in
+	private static final byte NAME_START_CHAR = 1, NAME_CHAR = 2, CHAR = 4;
+
+	private static final byte[] ASCII = new byte[0x80];
+
+	static {
+		for(char c = 0 ; c < 0x80 ; ++c) {
+			ASCII[c] = (byte) ((NAME_START_CHARS.contains(c) ? NAME_START_CHAR : 0) | (NAME_CHARS.contains(c) ? NAME_CHAR : 0) | (CHARS.contains(c) ? CHAR : 0));
+		}
+	}
+
+	private XMLChars() {
+		// static methods only
+	}
+
+	static boolean isNameStartChar(char c) {
+		return c < 0x80 ? (ASCII[c] & NAME_START_CHAR) != 0 : NAME_START_CHARS.contains(c);
+	}
+
+	static boolean isNameChar(char c) {
+		return c < 0x80 ? (ASCII[c] & NAME_CHAR) != 0 : NAME_CHARS.contains(c);
+	}
+
+	static boolean isWhitespace(char c) {
+		return (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+	}
+
+	static boolean isChar(char c) {
+		return c < 0x80 ? (ASCII[c] & CHAR) != 0 : CHARS.contains(c);
+	}
+
+	/**
+	 * @return true if seq[offset, offset + length) is empty or only {@link Character#isWhitespace(char)}
+	 */
+	static boolean isBlank(@Nonnull CharSequence seq, int offset, int length) {
+		for(int i = offset, end = offset + length ; i < end ; ++i) {
+			if(!Character.isWhitespace(seq.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A set of chars as a two level bitset. Each of the 256 pages of 256 chars has a block of four
+	 * longs, which it shares with every other page with the same bits, so a set made of a few ranges
+	 * has only a handful of distinct blocks.
+	 */
+	@Immutable
+	static final class CharClass {
+
+		// the index of each page's block
+		private final byte[] pages = new byte[256];
+
+		private final long[] blocks;
+
+		/**
+		 * @param ranges pairs of the first and last chars of each range
+		 */
+		CharClass(@Nonnull char... ranges) {
+			this(null, ranges);
+		}
+
+		/**
+		 * @param ranges pairs of the first and last chars of each range added to the chars of base
+		 */
+		CharClass(CharClass base, @Nonnull char... ranges) {
+			final long[] bits = new long[1024];
+			if(base != null) {
+				for(int page = 0 ; page < 256 ; ++page) {
+					System.arraycopy(base.blocks, (base.pages[page] & 0xFF) << 2, bits, page << 2, 4);
+				}
+			}
+			for(int i = 0 ; i < ranges.length ; i += 2) {
+				set(bits, ranges[i], ranges[i + 1]);
+			}
+			long[] blocks = new long[32];
+			int count = 0;
+			for(int page = 0 ; page < 256 ; ++page) {
+				int block = 0;
+				while(block < count && !sameBlock(bits, page << 2, blocks, block << 2)) {
+					++block;
+				}
+				if(block == count) {
+					if(count << 2 == blocks.length) {
+						blocks = Arrays.copyOf(blocks, blocks.length << 1);
+					}
+					System.arraycopy(bits, page << 2, blocks, count << 2, 4);
+					++count;
+				}
+				pages[page] = (byte) block;
+			}
+			this.blocks = Arrays.copyOf(blocks, count << 2);
+		}
+
+		// sets the bits of the chars from first to last, a word at a time
+		private static void set(@Nonnull long[] bits, int first, int last) {
+			for(int c = first ; c <= last ; ) {
+				final int word = c >>> 6;
+				final int end = Math.min(last, (word << 6) | 63);
+				bits[word] |= (-1L << (c & 63)) & (-1L >>> (63 - (end & 63)));
+				c = end + 1;
+			}
+		}
+
+		private static boolean sameBlock(@Nonnull long[] a, int i, @Nonnull long[] b, int j) {
+			return a[i] == b[j] && a[i + 1] == b[j + 1] && a[i + 2] == b[j + 2] && a[i + 3] == b[j + 3];
+		}
+
+		boolean contains(char c) {
+			return (blocks[((pages[c >>> 8] & 0xFF) << 2) | ((c >>> 6) & 3)] >>> c & 1) != 0;
+		}
+	}
+}
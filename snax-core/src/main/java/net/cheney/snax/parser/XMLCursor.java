@@ -0,0 +1,285 @@
+package net.cheney.snax.parser;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A pull parser over the {@link XMLParser} state machine. Each call to {@link #next()} parses
+ * up to the next event and reports where its name or text lies in the source, no
+ * {@link net.cheney.snax.model.Node}s are built. A cursor can be {@link #reset(CharSequence)}
+ * and reused, after warming up it allocates nothing per event unless a String is asked for.
+ * <p>
+ * Names are reported as they appear in the document, namespace prefixes are not resolved. 
+ * Comments are reported wherever they are, DOCTYPE and other declarations are skipped.
+ */
+public final class XMLCursor {
+
+	public enum Event {
+		START_ELEMENT, END_ELEMENT, TEXT, COMMENT, PROCESSING_INSTRUCTION, END_DOCUMENT
+	}
+
+	private final XMLParser parser = new XMLParser(new Handler());
+
+	private CharSequence source;
+
+	private Event event;
+
+	// the name of the current element or the content of the current text, comment or pi
+	private int offset, length;
+
+	// name offset, name length, value offset and value length of each attribute of the current element
+	private int[] attributes = new int[16];
+
+	private int attributeCount;
+
+	// name offset and length of each open element, reported again by END_ELEMENT
+	private int[] names = new int[32];
+
+	private int depth;
+
+	// set once the current call to next has an event
+	private boolean reported;
+
+	// the end of an empty element, reported in the same char as its start
+	private boolean pendingEnd;
+
+	public XMLCursor() {
+		// call reset before next
+	}
+
+	public XMLCursor(@Nonnull CharSequence source) {
+		reset(source);
+	}
+
+	/**
+	 * Start reading a new document from the beginning of source.
+	 */
+	public void reset(@Nonnull CharSequence source) {
+		parser.reset();
+		parser.start(source);
+		this.source = source;
+		this.event = null;
+		this.offset = this.length = 0;
+		this.attributeCount = 0;
+		this.depth = 0;
+		this.pendingEnd = false;
+	}
+
+	public boolean hasNext() {
+		return source != null && event != Event.END_DOCUMENT;
+	}
+
+	/**
+	 * Advance to the next event. Whitespace only text is skipped.
+	 *
+	 * @throws NoSuchElementException if {@link Event#END_DOCUMENT} has already been returned
+	 * @throws IllegalStateException if the document ends before it is complete
+	 */
+	public Event next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		reported = false;
+		if (pendingEnd) {
+			pendingEnd = false;
+			endElement();
+		} else if (!parser.advance()) {
+			parser.endOfInput();
+			event = Event.END_DOCUMENT;
+			offset = length = 0;
+		}
+		return event;
+	}
+
+	public Event event() {
+		return event;
+	}
+
+	public CharSequence source() {
+		return source;
+	}
+
+	/**
+	 * @return the start of the current element's qualified name or text, comment or processing instruction in {@link #source()}
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the qualified name of the current START_ELEMENT or END_ELEMENT
+	 */
+	public String name() {
+		checkElement();
+		return text(offset, length);
+	}
+
+	/**
+	 * Compare the current element's qualified name to name without allocating.
+	 */
+	public boolean nameEquals(@Nonnull CharSequence name) {
+		checkElement();
+		return regionEquals(offset, length, name);
+	}
+
+	/**
+	 * @return the content of the current TEXT, COMMENT or PROCESSING_INSTRUCTION
+	 */
+	public String text() {
+		if (event == Event.START_ELEMENT || event == Event.END_ELEMENT || event == Event.END_DOCUMENT) {
+			throw new IllegalStateException(String.format("%s has no text", event));
+		}
+		return text(offset, length);
+	}
+
+	public int attributeCount() {
+		checkStartElement();
+		return attributeCount;
+	}
+
+	public String attributeName(int index) {
+		checkAttribute(index);
+		return text(attributes[index << 2], attributes[(index << 2) + 1]);
+	}
+
+	public String attributeValue(int index) {
+		checkAttribute(index);
+		return text(attributes[(index << 2) + 2], attributes[(index << 2) + 3]);
+	}
+
+	/**
+	 * @return the value of the attribute with the given qualified name, or null if the current element does not have one
+	 */
+	public String attributeValue(@Nonnull CharSequence name) {
+		checkStartElement();
+		for (int i = 0; i < attributeCount; ++i) {
+			if (regionEquals(attributes[i << 2], attributes[(i << 2) + 1], name)) {
+				return attributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	private String text(int offset, int length) {
+		return source.subSequence(offset, offset + length).toString();
+	}
+
+	private boolean regionEquals(int offset, int length, @Nonnull CharSequence seq) {
+		if (seq.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (source.charAt(offset + i) != seq.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkElement() {
+		if (event != Event.START_ELEMENT && event != Event.END_ELEMENT) {
+			throw new IllegalStateException(String.format("%s has no name", event));
+		}
+	}
+
+	private void checkStartElement() {
+		if (event != Event.START_ELEMENT) {
+			throw new IllegalStateException(String.format("%s has no attributes", event));
+		}
+	}
+
+	private void checkAttribute(int index) {
+		checkStartElement();
+		if (index < 0 || index >= attributeCount) {
+			throw new IndexOutOfBoundsException(String.format("%d of %d attributes", index, attributeCount));
+		}
+	}
+
+	private void event(@Nonnull Event event, int offset, int length) {
+		this.event = event;
+		this.offset = offset;
+		this.length = length;
+		this.reported = true;
+		parser.suspend();
+	}
+
+	private void endElement() {
+		--depth;
+		event(Event.END_ELEMENT, names[depth << 1], names[(depth << 1) + 1]);
+	}
+
+	private static int[] grow(@Nonnull int[] array, int required) {
+		if (array.length >= required) {
+			return array;
+		}
+		final int[] grown = new int[Math.max(required, array.length << 1)];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * The source is parsed in one piece, so every view is of the source itself.
+	 */
+	private final class Handler implements ParseHandler {
+
+		@Override
+		public void startElement(@Nonnull CharSequence seq, int offset, int length) {
+			names = grow(names, (depth + 1) << 1);
+			names[depth << 1] = offset;
+			names[(depth << 1) + 1] = length;
+			++depth;
+			attributeCount = 0;
+		}
+
+		@Override
+		public void attributeName(@Nonnull CharSequence seq, int offset, int length) {
+			attributes = grow(attributes, (attributeCount + 1) << 2);
+			attributes[attributeCount << 2] = offset;
+			attributes[(attributeCount << 2) + 1] = length;
+		}
+
+		@Override
+		public void attributeValue(@Nonnull CharSequence seq, int offset, int length) {
+			attributes[(attributeCount << 2) + 2] = offset;
+			attributes[(attributeCount << 2) + 3] = length;
+			++attributeCount;
+		}
+
+		@Override
+		public void endAttributes() {
+			event(Event.START_ELEMENT, names[(depth - 1) << 1], names[((depth - 1) << 1) + 1]);
+		}
+
+		@Override
+		public void endElement() {
+			if (depth == 0) {
+				throw new IllegalStateException("End tag without a start tag");
+			} else if (reported) {
+				// the closing > of an empty element also ended its start tag
+				pendingEnd = true;
+			} else {
+				XMLCursor.this.endElement();
+			}
+		}
+
+		@Override
+		public void characters(@Nonnull CharSequence seq, int offset, int length) {
+			event(Event.TEXT, offset, length);
+		}
+
+		@Override
+		public void comment(@Nonnull CharSequence seq, int offset, int length) {
+			event(Event.COMMENT, offset, length);
+		}
+
+		@Override
+		public void processingInstruction(@Nonnull CharSequence seq, int offset, int length) {
+			event(Event.PROCESSING_INSTRUCTION, offset, length);
+		}
+	}
+}
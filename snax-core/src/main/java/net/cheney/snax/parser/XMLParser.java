@@ -1,17 +1,25 @@
 package net.cheney.snax.parser;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
 import javax.annotation.Nonnull;
 
-import net.cheney.snax.model.Container;
 import net.cheney.snax.model.Document;
 
 import static java.lang.Character.isWhitespace;
 
 public final class XMLParser {
 	
-	private enum State {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	enum State {
 		
-		CHARACTERS {
+		CHARACTERS(true) {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if(c == '<') {
@@ -49,6 +57,8 @@ public final class XMLParser {
 				if(c == '[') {
 					parser.incrementOffsetAndResetLength();
 					return CDATA_START;
+				} else if(c == '-') {
+					return COMMENT_START;
 				} else if(isNameChar(c)) {
 					return DECLARATION;
 				} else {
@@ -74,7 +84,7 @@ public final class XMLParser {
 			}
 		},
 		
-		DECLARATION_CDATA {
+		DECLARATION_CDATA(true) {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if (c == ']') {
@@ -114,7 +124,7 @@ public final class XMLParser {
 			}
 		},
 		
-		CDATA {
+		CDATA(true) {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if (c == ']') {
@@ -188,6 +198,7 @@ public final class XMLParser {
 					return ATTRIBUTE_NAME_START;
 				} else if (c == '>') {
 					parser.doElementStart();
+					parser.doAttributesEnd();
 					return CHARACTERS;
 				} else if (c == '/') {
 					parser.doElementStart();
@@ -215,6 +226,7 @@ public final class XMLParser {
 					// corresponding </element>
 					// this.handler.doElementEnd();
 					parser.incrementOffsetAndResetLength();
+					parser.doAttributesEnd();
 					return CHARACTERS;
 				} else {
 					throw new IllegalParseStateException(c, ATTRIBUTE_NAME_START);
@@ -242,6 +254,7 @@ public final class XMLParser {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if (c == '>') {
+					parser.doAttributesEnd();
 					parser.doElementEnd();
 					return CHARACTERS;
 				} else {
@@ -303,7 +316,7 @@ public final class XMLParser {
 			}
 		},
 		
-		ATTRIBUTE_VALUE_APOS {
+		ATTRIBUTE_VALUE_APOS(true) {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if (c == '\'') {
@@ -317,7 +330,7 @@ public final class XMLParser {
 			}
 		},
 		
-		ATTRIBUTE_VALUE_QUOT {
+		ATTRIBUTE_VALUE_QUOT(true) {
 			@Override
 			State parse(char c, XMLParser parser) {
 				if (c == '\"') {
@@ -381,6 +394,7 @@ public final class XMLParser {
 			}
 		},
 		
+		// after <!-, a comment runs to the next -->, whatever > it holds
 		COMMENT_START {
 			@Override
 			State parse(char c, XMLParser parser) {
@@ -393,77 +407,70 @@ public final class XMLParser {
 			}
 		},
 		
-		COMMENT {
+		COMMENT(true) {
+			@Override
+			State parse(char c, XMLParser parser) {
+				if(c == '-') {
+					return COMMENT_END_1;
+				} else {
+					return this;
+				}
+			}
+		},
+		
+		COMMENT_END_1 {
 			@Override
 			State parse(char c, XMLParser parser) {
-				if(c == '>') { 
+				if(c == '-') {
+					return COMMENT_END_2;
+				} else {
+					return COMMENT;
+				}
+			}
+		},
+		
+		COMMENT_END_2 {
+			@Override
+			State parse(char c, XMLParser parser) {
+				if(c == '>') {
 					parser.doComment();
 					return CHARACTERS;
-				} else {
+				} else if(c == '-') {
 					return this;
+				} else {
+					// a -- that does not end the comment is let through, as XMLScanner does
+					return COMMENT;
 				}
 			}
 		};
 		
-		private static final boolean[] NAME_START_CHARS = new boolean[Character.MAX_VALUE], NAME_CHARS = new boolean[Character.MAX_VALUE], CHARS = new boolean[Character.MAX_VALUE];
+		// set for the states that end at a single delimiter, whose content can be skipped in bulk
+		final boolean run;
 		
-		static {
-			for(char c = 0 ; c < Character.MAX_VALUE ; ++c) {
-				NAME_START_CHARS[c] = isNameStartChar0(c);
-			}
-			
-			for(char c = 0 ; c < Character.MAX_VALUE ; ++c) {
-				NAME_CHARS[c] = isNameChar0(c);
-			}
-			
-			for(char c = 0 ; c < Character.MAX_VALUE ; ++c) {
-				CHARS[c] = isChar0(c);
-			}
+		private State() {
+			this(false);
 		}
 		
-		boolean isNameStartChar(char c) {
-			return NAME_START_CHARS[c];
-		}
-		
-		private static boolean isNameStartChar0(char c) {
-			return (c == ':' || (c >= 'A' && c <= 'Z') || c == '_'
-					|| (c >= 'a' && c <= 'z')
-					|| (c >= '\u00C0' && c <= '\u00D6')
-					|| (c >= '\u00D8' && c <= '\u00F6')
-					|| (c >= '\u00F8' && c <= '\u02FF')
-					|| (c >= '\u0370' && c <= '\u037D')
-					|| (c >= '\u037F' && c <= '\u1FFF')
-					|| (c >= '\u200C' && c <= '\u200D')
-					|| (c >= '\u2070' && c <= '\u218F')
-					|| (c >= '\u2C00' && c <= '\u2FEF')
-					|| (c >= '\u3001' && c <= '\uD7FF')
-					|| (c >= '\uF900' && c <= '\uFDCF') || (c >= '\uFDF0' && c <= '\uFFFD'));
-		}
-
-
-		protected boolean isNameChar(char c) {
-			return NAME_CHARS[c];
+		private State(boolean run) {
+			this.run = run;
 		}
 		
-		private static boolean isNameChar0(char c) {
-			return (isNameStartChar0(c) || c == '-' || c == '.'
-					|| (c >= '0' && c <= '9') || c == '\u00B7'
-					|| (c >= '\u0300' && c <= '\u036F') || (c >= '\u023F' && c <= '\u2040'));
-		}
-
 		abstract State parse(char c, XMLParser parser);
 
-		protected boolean isWhitespace(char c) {
-			return (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+		boolean isNameStartChar(char c) {
+			return XMLChars.isNameStartChar(c);
 		}
-		
-		protected boolean isChar(char c) {
-			return CHARS[c];
+
+		boolean isNameChar(char c) {
+			return XMLChars.isNameChar(c);
 		}
 
-		private static boolean isChar0(char c) {
-			return (c == '\t' || c == '\r' || c == '\n'
-					|| (c >= '\u0020' && c <= '\uD7FF') || (c >= '\uE000' && c <= '\uFFFD'));
+		boolean isWhitespace(char c) {
+			return XMLChars.isWhitespace(c);
+		}
+		
+		boolean isChar(char c) {
+			return XMLChars.isChar(c);
 		}
 		
 	}
@@ -475,49 +482,103 @@ public final class XMLParser {
 
 	private CharSequence sequence;
 	
-	private Container.Builder builder;
+	// set instead of sequence when parsing bytes, slices are decoded into scratch on demand
+	private ByteBuffer bytes;
+	
+	private Encoding encoding;
+	
+	private char[] scratch = new char[64];
+	
+	private CharBuffer scratchView = CharBuffer.wrap(scratch);
+	
+	// the start of a slice that did not end before the previous buffer did
+	private ByteBuffer carry;
+	
+	private StringBuilder carriedChars;
+	
+	private boolean carrying = false;
+	
+	// the chars between offset and limit, as passed to the handler
+	private CharSequence slice;
+	
+	private int sliceOffset, sliceLength;
+	
+	// used by feed(ByteBuffer), either encoding or decoder is set
+	private final Encoding feedEncoding;
+	
+	private final CharsetDecoder decoder;
+	
+	private CharBuffer decoded;
+	
+	// a character cut off by the end of the previous buffer passed to feed(ByteBuffer)
+	private final ByteBuffer pending = ByteBuffer.allocate(16);
+	
+	private int depth = 0;
+	
+	private boolean rootSeen = false;
+	
+	// set by the handler to stop advance() after the current char
+	private boolean suspended = false;
+	
+	private final ParseHandler handler;
 
+	/**
+	 * @throws IllegalStateException if this parser reports to a {@link ParseHandler} other than a {@link BuilderHandler}
+	 */
 	public Document document() {
-		return ((Document.Builder)builder).build();
+		if(handler instanceof BuilderHandler) {
+			return ((BuilderHandler) handler).document();
+		}
+		throw new IllegalStateException("This parser does not build a Document");
 	}
 
 	public void doAttributeName() {
-		builder.doAttributeName(subsequence());
+		slice();
+		handler.attributeName(slice, sliceOffset, sliceLength);
 		incrementOffsetAndResetLength();
 	}
 
 	public void doAttributeValue() {
-		builder.doAttributeValue(subsequence());
+		slice();
+		handler.attributeValue(slice, sliceOffset, sliceLength);
 		incrementOffsetAndResetLength();
 	}
+	
+	public void doAttributesEnd() {
+		handler.endAttributes();
+	}
 
 	public void doCharacters() {
-		CharSequence seq = subsequence();
-		incrementOffsetAndResetLength();
-		if(isBlank(seq)) {
-			return;
-		} else {
-			builder.doCharacters(seq);
+		slice();
+		if(!isBlank(slice, sliceOffset, sliceLength)) {
+			handler.characters(slice, sliceOffset, sliceLength);
 		}
+		incrementOffsetAndResetLength();
 	}
 
 	public void doComment() {
-		builder.doComment(subsequence());
+		slice();
+		handler.comment(slice, sliceOffset, sliceLength - 2);
 		incrementOffsetAndResetLength();
 	}
 
 	public void doElementEnd() {
-		builder = builder.doElementEnd();
+		handler.endElement();
+		--depth;
 		incrementOffsetAndResetLength();
 	}
 
 	public void doElementStart() {
-		builder = builder.doElementStart(subsequence());
+		slice();
+		handler.startElement(slice, sliceOffset, sliceLength);
+		++depth;
+		rootSeen = true;
 		incrementOffsetAndResetLength();
 	}
 
 	public void doProcessingInstruction() {
-		builder.doProcessingInstruction(subsequence());
+		slice();
+		handler.processingInstruction(slice, sliceOffset, sliceLength);
 		incrementOffsetAndResetLength();
 	}
 
@@ -525,44 +586,443 @@ public final class XMLParser {
 		// 
 	}
 	
+	public void doCData() {
+		slice();
+		handler.characters(slice, sliceOffset, sliceLength - 2);
+		incrementOffsetAndResetLength();
+	}
+	
     public static boolean isBlank(@Nonnull CharSequence str) {
-        for (int i = 0, strLen = str.length(); i < strLen; i++) {
-            if (!isWhitespace(str.charAt(i))) {
-                return false;
-            }
-        }
-        return true;
+        return isBlank(str, 0, str.length());
+    }
+    
+    static boolean isBlank(@Nonnull CharSequence str, int offset, int length) {
+        return XMLChars.isBlank(str, offset, length);
     }
 	
 	public XMLParser() {
-		this.builder = Document.builder();
+		this(UTF_8);
+	}
+	
+	/**
+	 * @param charset the encoding of the buffers passed to {@link #feed(ByteBuffer)}
+	 */
+	public XMLParser(@Nonnull Charset charset) {
+		this(new BuilderHandler(), charset);
+	}
+	
+	/**
+	 * Report the document to handler instead of building a {@link Document}.
+	 */
+	public XMLParser(@Nonnull ParseHandler handler) {
+		this(handler, UTF_8);
+	}
+	
+	/**
+	 * @param charset the encoding of the buffers passed to {@link #feed(ByteBuffer)}
+	 */
+	public XMLParser(@Nonnull ParseHandler handler, @Nonnull Charset charset) {
+		this.handler = handler;
+		this.feedEncoding = Encoding.forCharset(charset);
+		if(feedEncoding == null) {
+			this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		} else {
+			this.decoder = null;
+		}
 	}
 
 	void incrementOffsetAndResetLength() {
 		offset = limit;
 		offset++;
+		if(carrying) {
+			carrying = false;
+			if(bytes == null) {
+				carriedChars.setLength(0);
+			} else {
+				carry.clear();
+			}
+		}
+	}
+	
+	// point slice at the chars between offset and limit, including any carried over from the previous buffer
+	private void slice() {
+		if(bytes == null) {
+			if(carrying) {
+				carriedChars.append(sequence, offset, limit);
+				slice(carriedChars, 0, carriedChars.length());
+			} else {
+				slice(sequence, offset, limit - offset);
+			}
+		} else if(carrying) {
+			carry(bytes, offset, limit);
+			decode(carry, 0, carry.position());
+		} else {
+			decode(bytes, offset, limit);
+		}
+	}
+	
+	private void slice(CharSequence seq, int offset, int length) {
+		this.slice = seq;
+		this.sliceOffset = offset;
+		this.sliceLength = length;
+	}
+	
+	private void decode(ByteBuffer src, int from, int to) {
+		if(scratch.length < to - from) {
+			scratch = new char[Math.max(to - from, scratch.length << 1)];
+			scratchView = CharBuffer.wrap(scratch);
+		}
+		slice(scratchView, 0, encoding.decode(src, from, to, scratch));
+	}
+	
+	private void carry(ByteBuffer buffer, int from, int to) {
+		final int length = to - from;
+		if(carry == null) {
+			carry = ByteBuffer.allocate(Math.max(length, 256));
+		} else if(carry.remaining() < length) {
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(carry.position() + length, carry.capacity() << 1));
+			carry.flip();
+			carry = grown.put(carry);
+		}
+		final ByteBuffer src = buffer.duplicate();
+		src.limit(to);
+		src.position(from);
+		carry.put(src);
+	}
+	
+	/**
+	 * Let go of the last input, and of any buffer grown past max chars or bytes, so a parser kept 
+	 * for reuse does not hold on to the largest document it has parsed.
+	 */
+	void release(int max) {
+		sequence = null;
+		bytes = null;
+		slice = null;
+		if(scratch.length > max) {
+			scratch = new char[64];
+			scratchView = CharBuffer.wrap(scratch);
+		}
+		if(carry != null && carry.capacity() > max) {
+			carry = null;
+		}
+		if(carriedChars != null && carriedChars.capacity() > max) {
+			carriedChars = null;
+		}
+	}
+	
+	// the chars and bytes held by the buffers release(int) may drop
+	int retained() {
+		return scratch.length + (carry == null ? 0 : carry.capacity()) + (carriedChars == null ? 0 : carriedChars.capacity());
+	}
+	
+	/**
+	 * Return to the start of a new document, keeping the handler and the buffers grown so far. 
+	 * A {@link BuilderHandler} starts building a new {@link Document}.
+	 */
+	public void reset() {
+		if(handler instanceof BuilderHandler) {
+			((BuilderHandler) handler).reset();
+		}
+		state = State.CHARACTERS;
+		offset = limit = 0;
+		sequence = null;
+		bytes = null;
+		carrying = false;
+		pending.clear();
+		if(decoder != null) {
+			decoder.reset();
+		}
+		depth = 0;
+		rootSeen = false;
+		suspended = false;
+	}
+	
+	/**
+	 * Prepare to {@link #advance()} through the whole of seq.
+	 */
+	void start(@Nonnull CharSequence seq) {
+		this.sequence = seq;
+		this.bytes = null;
+		offset = limit = 0;
+	}
+	
+	/**
+	 * Parse the sequence passed to {@link #start(CharSequence)} until the handler calls {@link #suspend()}.
+	 * 
+	 * @return false if the end of the sequence was reached without being suspended
+	 */
+	boolean advance() {
+		final CharSequence seq = this.sequence;
+		final int max = seq.length();
+		State currentState = this.state;
+		suspended = false;
+		for( ; limit < max && !suspended ; ++limit) {
+			if(currentState.run) {
+				limit = skip(seq, currentState, limit, max);
+				if(limit == max) {
+					break;
+				}
+			}
+			currentState = currentState.parse(seq.charAt(limit), this);
+		}
+		this.state = currentState;
+		return suspended;
 	}
 	
-	private CharSequence subsequence() {
-		return sequence.subSequence(offset, limit);
+	void suspend() {
+		suspended = true;
 	}
 	
+	/**
+	 * Parse the next part of the document. A name, attribute value or text run that is still open at 
+	 * the end of seq is carried over to the next call.
+	 */
 	public void parse(CharSequence seq) {
 		int max = seq.length();
 		// Yank state into a stack local, reduces benchmark by 10%
 		State currentState = this.state;
-		// make seq available to the subsequence method without making offset and limit visible
+		// make seq available to the slice method without making offset and limit visible
 		this.sequence = seq;
+		this.bytes = null;
 		for(offset = 0, limit = 0 ; limit < max ; ++limit ) {
+			if(currentState.run) {
+				limit = skip(seq, currentState, limit, max);
+				if(limit == max) {
+					break;
+				}
+			}
 			currentState = currentState.parse(seq.charAt(limit), this);
 		}
 		this.state = currentState;
+		if(carrying || offset < max) {
+			if(carriedChars == null) {
+				carriedChars = new StringBuilder(Math.max(max - offset, 256));
+			} else if(!carrying) {
+				carriedChars.setLength(0);
+			}
+			carrying = true;
+			carriedChars.append(seq, offset, max);
+		}
 	}
 	
-	public void doCData() {
-		CharSequence cdata = subsequence();
-		incrementOffsetAndResetLength();
-		builder.doCharacters(cdata.subSequence(0, cdata.length() - 2));
+	/**
+	 * Push the remaining chars of buffer into the parser, buffer is consumed.
+	 * 
+	 * @see #endOfInput()
+	 */
+	public void feed(@Nonnull CharBuffer buffer) {
+		parse(buffer);
+		buffer.position(buffer.limit());
+	}
+	
+	/**
+	 * Push the remaining bytes of buffer, encoded in the charset this parser was created with, 
+	 * into the parser. buffer is consumed, a multi byte sequence cut off at the end of buffer is 
+	 * completed by the next call.
+	 * 
+	 * @see #endOfInput()
+	 */
+	public void feed(@Nonnull ByteBuffer buffer) {
+		while(pending.position() > 0 && buffer.hasRemaining()) {
+			// complete the character left over from the previous buffer
+			final int length = Math.min(pending.remaining(), buffer.remaining());
+			final ByteBuffer head = buffer.duplicate();
+			head.limit(head.position() + length);
+			pending.put(head);
+			buffer.position(buffer.position() + length);
+			pending.flip();
+			consume(pending, false);
+			pending.compact();
+		}
+		if(pending.position() == 0) {
+			consume(buffer, false);
+			pending.put(buffer);
+		}
+	}
+	
+	private void consume(@Nonnull ByteBuffer buffer, boolean endOfInput) {
+		if(decoder == null) {
+			parse(buffer, feedEncoding);
+		} else {
+			if(decoded == null) {
+				decoded = CharBuffer.allocate(1024);
+			}
+			CoderResult result;
+			do {
+				result = decoder.decode(buffer, decoded, endOfInput);
+				decoded.flip();
+				parse(decoded);
+				decoded.clear();
+			} while(result.isOverflow());
+		}
+	}
+	
+	/**
+	 * Signal that the last buffer has been fed to the parser. 
+	 * 
+	 * @throws IllegalStateException if the document is incomplete
+	 */
+	public void endOfInput() {
+		if(decoder != null) {
+			pending.flip();
+			consume(pending, true);
+			pending.clear();
+			CoderResult result;
+			do {
+				result = decoder.flush(decoded);
+				decoded.flip();
+				parse(decoded);
+				decoded.clear();
+			} while(result.isOverflow());
+		}
+		// a character cut off by the end of the input can only be part of trailing whitespace 
+		// in a complete document, so it is ignored
+		if(state != State.CHARACTERS || depth != 0 || !rootSeen) {
+			throw new IllegalStateException(String.format("Unexpected end of input in %s", state));
+		}
+	}
+	
+	/**
+	 * @return true if {@link #parse(ByteBuffer, Charset)} can scan this charset directly
+	 */
+	public static boolean supports(@Nonnull Charset charset) {
+		return Encoding.forCharset(charset) != null;
+	}
+	
+	/**
+	 * Parse the remaining bytes of buffer without decoding it into a {@link java.nio.CharBuffer} first. 
+	 * Only the names, text and attribute values handed to the builder are decoded. Malformed input is 
+	 * replaced with U+FFFD, as {@link Charset#decode(ByteBuffer)} would.
+	 * <p>
+	 * Successive calls continue the document, a name, attribute value or text run that is still open 
+	 * at the end of buffer is carried over to the next call. Like a {@link java.nio.charset.CharsetDecoder}, 
+	 * a multi byte sequence cut off at the end of buffer is left unread, buffer's position is advanced 
+	 * past the bytes consumed.
+	 * 
+	 * @param charset one of UTF-8, ISO-8859-1 or US-ASCII, see {@link #supports(Charset)}
+	 */
+	public void parse(@Nonnull ByteBuffer buffer, @Nonnull Charset charset) {
+		final Encoding encoding = Encoding.forCharset(charset);
+		if(encoding == null) {
+			throw new IllegalArgumentException(String.format("%s cannot be parsed directly, decode it first", charset));
+		}
+		parse(buffer, encoding);
+	}
+	
+	private void parse(@Nonnull ByteBuffer buffer, @Nonnull Encoding encoding) {
+		final int max = buffer.limit();
+		State currentState = this.state;
+		this.sequence = null;
+		this.bytes = buffer;
+		this.encoding = encoding;
+		if(encoding == Encoding.UTF_8) {
+			currentState = parseUTF8(buffer, currentState, max);
+		} else {
+			currentState = parseSingleByte(buffer, currentState, max, encoding == Encoding.ISO_8859_1);
+		}
+		this.state = currentState;
+		if(carrying || offset < limit) {
+			if(!carrying) {
+				carrying = true;
+				if(carry != null) {
+					carry.clear();
+				}
+			}
+			carry(buffer, offset, limit);
+		}
+		buffer.position(limit);
+	}
+	
+	private State parseUTF8(ByteBuffer buffer, State currentState, int max) {
+		// a multi byte sequence cut off by max must be found by decodeMultiByte, so runs are not 
+		// skipped into the last three bytes
+		final int runLimit = max - 3;
+		for(offset = limit = buffer.position() ; limit < max ; ) {
+			if(currentState.run) {
+				limit = skip(buffer, currentState, limit, runLimit);
+			}
+			final int b = buffer.get(limit);
+			if(b >= 0) {
+				currentState = currentState.parse((char) b, this);
+				++limit;
+			} else {
+				// every delimiter is ASCII, so a multi byte sequence never completes a slice
+				final int decoded = Encoding.decodeMultiByte(buffer, limit, max);
+				if(decoded == Encoding.INCOMPLETE) {
+					break;
+				}
+				final int cp = Encoding.codePoint(decoded);
+				if(cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+					currentState = currentState.parse((char) cp, this);
+				} else {
+					currentState = currentState.parse(Character.highSurrogate(cp), this);
+					currentState = currentState.parse(Character.lowSurrogate(cp), this);
+				}
+				limit += Encoding.sequenceLength(decoded);
+			}
+		}
+		return currentState;
+	}
+	
+	private State parseSingleByte(ByteBuffer buffer, State currentState, int max, boolean latin1) {
+		for(offset = limit = buffer.position() ; limit < max ; ++limit) {
+			if(currentState.run) {
+				limit = skip(buffer, currentState, limit, max);
+				if(limit == max) {
+					break;
+				}
+			}
+			final int b = buffer.get(limit);
+			final char c = b >= 0 ? (char) b : latin1 ? (char) (b & 0xFF) : Encoding.REPLACEMENT_CHAR;
+			currentState = currentState.parse(c, this);
+		}
+		return currentState;
+	}
+	
+	/**
+	 * @return the index of the first char between from and to that state does not simply consume
+	 */
+	private static int skip(@Nonnull CharSequence seq, @Nonnull State state, int from, int to) {
+		int i = from;
+		if(state == State.CHARACTERS) {
+			while(i < to && seq.charAt(i) != '<') {
+				++i;
+			}
+		} else if(state == State.CDATA || state == State.DECLARATION_CDATA) {
+			while(i < to && seq.charAt(i) != ']') {
+				++i;
+			}
+		} else if(state == State.COMMENT) {
+			while(i < to && seq.charAt(i) != '-') {
+				++i;
+			}
+		} else {
+			final char quote = state == State.ATTRIBUTE_VALUE_APOS ? '\'' : '"';
+			for(char c ; i < to && (c = seq.charAt(i)) != quote && XMLChars.isChar(c) ; ) {
+				++i;
+			}
+		}
+		return i;
+	}
+	
+	/**
+	 * @return the index of the first byte between from and to that state does not simply consume, 
+	 * or to if there is none
+	 */
+	private static int skip(@Nonnull ByteBuffer buffer, @Nonnull State state, int from, int to) {
+		if(from >= to) {
+			return from;
+		} else if(state == State.CHARACTERS) {
+			return Delimiters.indexOf(buffer, from, to, (byte) '<');
+		} else if(state == State.CDATA || state == State.DECLARATION_CDATA) {
+			return Delimiters.indexOf(buffer, from, to, (byte) ']');
+		} else if(state == State.COMMENT) {
+			return Delimiters.indexOf(buffer, from, to, (byte) '-');
+		} else {
+			return Delimiters.indexOfQuoteOrNonPrintable(buffer, from, to, state == State.ATTRIBUTE_VALUE_APOS ? (byte) '\'' : (byte) '"');
+		}
 	}
 	
 	public static class IllegalParseStateException extends IllegalArgumentException {
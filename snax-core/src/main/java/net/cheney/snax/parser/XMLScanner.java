@@ -0,0 +1,615 @@
+package net.cheney.snax.parser;
+
+import static net.cheney.snax.parser.XMLChars.isBlank;
+import static net.cheney.snax.parser.XMLChars.isChar;
+import static net.cheney.snax.parser.XMLChars.isNameChar;
+import static net.cheney.snax.parser.XMLChars.isNameStartChar;
+import static net.cheney.snax.parser.XMLChars.isWhitespace;
+
+import java.nio.CharBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.model.Document;
+import net.cheney.snax.parser.XMLParser.IllegalParseStateException;
+import net.cheney.snax.parser.XMLParser.State;
+
+/**
+ * Parses a document that is wholly in memory, reporting it to a {@link ParseHandler}.
+ * <p>
+ * It accepts the same documents, reports the same events and throws the same
+ * {@link IllegalParseStateException}s as {@link XMLParser}, but rather than dispatching every
+ * char to the current {@link State} it indexes a char[] directly and consumes each name, text run,
+ * attribute value and CDATA section in a loop of its own. It cannot be fed a document in pieces,
+ * use {@link XMLParser} for that.
+ * <p>
+ * Views are reported against the sequence passed to {@link #parse(CharSequence)}. A scanner is not
+ * thread safe but may be reused, the buffer a sequence is copied into is kept between documents.
+ */
+public final class XMLScanner {
+
+	private final ParseHandler handler;
+
+	// a copy of the sequence being parsed, unless it is a CharBuffer with an accessible array
+	private char[] buffer = new char[0];
+
+	// the document being parsed, chars[base + i] is seq.charAt(i)
+	private CharSequence seq;
+
+	private char[] chars;
+
+	private int base, length;
+
+	// seq if it is a String, whose indexOf is intrinsic and searches many chars at a time
+	private String string;
+
+	// null unless only part of the document is reported
+	private final Projection projection;
+
+	// the projection's step for each open element, steps[0] is the document
+	private Projection.Step[] steps;
+
+	// the content of elements deeper than deferDepth is passed to builder unparsed
+	private final BuilderHandler builder;
+
+	private final int deferDepth;
+
+	// the attributes other than namespace declarations are checked but passed to builder unreported
+	private final boolean lazyAttributes;
+
+	// set while a start tag is scanned if one of its attributes was not reported
+	private boolean attributesDeferred;
+
+	// the number of open elements
+	private int depth;
+
+	private Skipper skipper;
+
+	public XMLScanner() {
+		this(new BuilderHandler());
+	}
+
+	public XMLScanner(@Nonnull ParseHandler handler) {
+		this(handler, null);
+	}
+
+	/**
+	 * Report only the parts of each document in projection. The elements that are not on one of 
+	 * its paths are skipped without being checked or reported, text, CDATA, comments and processing 
+	 * instructions are only reported inside an element at the end of a path.
+	 */
+	public XMLScanner(@Nonnull ParseHandler handler, Projection projection) {
+		this.handler = handler;
+		this.projection = projection;
+		this.steps = projection == null ? null : new Projection.Step[16];
+		this.builder = null;
+		this.deferDepth = Integer.MAX_VALUE;
+		this.lazyAttributes = false;
+	}
+
+	/**
+	 * Build a document in which the content of each element deeper than depth, the root being at 
+	 * depth 1, is only bracketed. It is parsed the first time it is read, one level at a time, 
+	 * from the sequence passed to {@link #parse(CharSequence)}, which the document retains.
+	 */
+	public XMLScanner(@Nonnull BuilderHandler handler, int depth) {
+		this(handler, depth, false);
+	}
+
+	/**
+	 * As {@link #XMLScanner(BuilderHandler, int)}, and if lazyAttributes is set the attributes of 
+	 * each start tag other than its namespace declarations are built as a single slice of the 
+	 * sequence, which is tokenized the first time the element's attributes or content are read. 
+	 * Every attribute is still checked as the tag is scanned, so malformed attributes are reported 
+	 * by {@link #parse(CharSequence)}. Pass {@link Integer#MAX_VALUE} as depth to defer no content.
+	 */
+	public XMLScanner(@Nonnull BuilderHandler handler, int depth, boolean lazyAttributes) {
+		if(depth < 0) {
+			throw new IllegalArgumentException(String.format("Invalid depth %d", depth));
+		}
+		this.handler = handler;
+		this.projection = null;
+		this.steps = null;
+		this.builder = handler;
+		this.deferDepth = depth;
+		this.lazyAttributes = lazyAttributes;
+	}
+
+	/**
+	 * @throws IllegalStateException if this scanner reports to a {@link ParseHandler} other than a {@link BuilderHandler}
+	 */
+	public Document document() {
+		if(handler instanceof BuilderHandler) {
+			return ((BuilderHandler) handler).document();
+		}
+		throw new IllegalStateException("This scanner does not build a Document");
+	}
+
+	/**
+	 * Parse the whole of seq. Like {@link XMLParser#parse(CharSequence)} a document that is cut
+	 * short is reported up to the point it ends, use {@link XMLParser#endOfInput()} to detect one.
+	 */
+	public void parse(@Nonnull CharSequence seq) {
+		parse(seq, 0, seq.length());
+	}
+
+	/**
+	 * Parse the whole of string, which is copied into this scanner's buffer with one call to
+	 * {@link String#getChars(int, int, char[], int)}.
+	 */
+	public void parse(@Nonnull String string) {
+		final int length = string.length();
+		if(buffer.length < length) {
+			buffer = new char[length];
+		}
+		string.getChars(0, length, buffer, 0);
+		scan(string, buffer, 0, 0, length);
+	}
+
+	/**
+	 * Parse chars[offset, offset + length) in place, it is not copied. Views are reported against
+	 * a CharBuffer wrapping the whole of chars, so their offsets are indices into chars.
+	 *
+	 * @throws IllegalArgumentException if the range is not within chars
+	 */
+	public void parse(@Nonnull char[] chars, int offset, int length) {
+		if(offset < 0 || length < 0 || offset > chars.length - length) {
+			throw new IllegalArgumentException(String.format("Range [%d, %d) is not within %d chars", offset, offset + length, chars.length));
+		}
+		scan(CharBuffer.wrap(chars), chars, 0, offset, offset + length);
+	}
+
+	/**
+	 * Parse the chars of seq between from and to, views are still reported against seq.
+	 */
+	void parse(@Nonnull CharSequence seq, int from, int to) {
+		if(seq instanceof CharBuffer && ((CharBuffer) seq).hasArray()) {
+			final CharBuffer buffer = (CharBuffer) seq;
+			scan(seq, buffer.array(), buffer.arrayOffset() + buffer.position(), from, to);
+		} else {
+			final int length = to - from;
+			if(buffer.length < length) {
+				buffer = new char[length];
+			}
+			if(seq instanceof String) {
+				((String) seq).getChars(from, to, buffer, 0);
+			} else {
+				for(int i = 0 ; i < length ; ++i) {
+					buffer[i] = seq.charAt(from + i);
+				}
+			}
+			scan(seq, buffer, -from, from, to);
+		}
+	}
+
+	/**
+	 * Drop the buffer sequences are copied into if it has grown past max chars.
+	 */
+	void release(int max) {
+		if(buffer.length > max) {
+			buffer = new char[0];
+		}
+	}
+
+	int retained() {
+		return buffer.length;
+	}
+
+	private void scan(@Nonnull CharSequence seq, @Nonnull char[] chars, int base, int from, int to) {
+		this.seq = seq;
+		this.chars = chars;
+		this.base = base;
+		this.length = to;
+		this.string = seq instanceof String ? (String) seq : null;
+		this.depth = 0;
+		if(projection != null) {
+			steps[0] = projection.root();
+		}
+		if(projection != null || builder != null) {
+			skipper = new Skipper.CharArray(chars, base, to);
+		}
+		try {
+			content(from);
+		} finally {
+			this.seq = null;
+			this.chars = null;
+			this.string = null;
+			this.skipper = null;
+		}
+	}
+
+	private char at(int p) {
+		return chars[base + p];
+	}
+
+	// each of the following starts at p and returns the position after what it consumed, or length
+	// if the document ends first
+
+	private void content(int p) {
+		final int length = this.length;
+		while(p < length) {
+			final int start = p;
+			p = indexOf('<', p);
+			if(p == length) {
+				// trailing text is never reported
+				return;
+			}
+			if(building() && !isBlank(seq, start, p - start)) {
+				handler.characters(seq, start, p - start);
+			}
+			if(++p == length) {
+				return;
+			}
+			final char c = at(p);
+			if(isNameStartChar(c)) {
+				p = startTag(p);
+			} else if(c == '!') {
+				p = declaration(p + 1);
+			} else if(c == '?') {
+				p = processingInstruction(p + 1);
+			} else if(c == '/') {
+				p = endTag(p + 1);
+			} else {
+				throw new IllegalParseStateException(c, State.STAG_NAME_START);
+			}
+		}
+	}
+
+	// the index of the next c at or after p, or length
+	private int indexOf(char c, int p) {
+		if(string != null) {
+			final int i = string.indexOf(c, p);
+			return i < 0 || i > length ? length : i;
+		}
+		final char[] chars = this.chars;
+		final int base = this.base, length = this.length;
+		while(p < length && chars[base + p] != c) {
+			++p;
+		}
+		return p;
+	}
+
+	// the first char that is not a name char, p is after the first char of the name
+	private int name(int p) {
+		final char[] chars = this.chars;
+		final int base = this.base, length = this.length;
+		while(p < length && isNameChar(chars[base + p])) {
+			++p;
+		}
+		return p;
+	}
+
+	// true unless text is outside an element at the end of one of the projection's paths
+	private boolean building() {
+		return projection == null || steps[depth].whole();
+	}
+
+	// step is null unless there is a projection
+	private void push(Projection.Step step) {
+		++depth;
+		if(steps != null) {
+			if(depth == steps.length) {
+				final Projection.Step[] grown = new Projection.Step[depth << 1];
+				System.arraycopy(steps, 0, grown, 0, depth);
+				steps = grown;
+			}
+			steps[depth] = step;
+		}
+	}
+
+	private void pop() {
+		if(depth > 0) {
+			if(steps != null) {
+				steps[depth] = null;
+			}
+			--depth;
+		}
+	}
+
+	// p is after the start tag of an element deeper than deferDepth, returns the position of its end tag
+	private int defer(int p) {
+		final int end = skipper.content(p);
+		if(end < 0) {
+			return length;
+		}
+		builder.deferContent(seq, p, end, lazyAttributes);
+		return end;
+	}
+
+	private int skipWhitespace(int p) {
+		while(p < length && isWhitespace(at(p))) {
+			++p;
+		}
+		return p;
+	}
+
+	private int startTag(int start) {
+		int p = name(start + 1);
+		if(p == length) {
+			return p;
+		}
+		char c = at(p);
+		if(!isWhitespace(c) && c != '>' && c != '/') {
+			throw new IllegalParseStateException(c, State.STAG_NAME);
+		}
+		Projection.Step step = null;
+		if(projection != null) {
+			step = steps[depth].child(chars, base + start, p - start);
+			if(step == null) {
+				// start is after the <
+				final int end = skipper.element(start - 1);
+				return end < 0 ? length : end;
+			}
+		}
+		push(step);
+		handler.startElement(seq, start, p - start);
+		final int attributes = p;
+		attributesDeferred = false;
+		for(;;) {
+			// c is the char at p, which follows the name or an attribute value
+			if(c == '>') {
+				if(attributesDeferred) {
+					builder.deferAttributes(seq, attributes, p);
+				}
+				handler.endAttributes();
+				return depth > deferDepth ? defer(p + 1) : p + 1;
+			} else if(c == '/') {
+				if(attributesDeferred) {
+					builder.deferAttributes(seq, attributes, p);
+				}
+				return emptyElementEnd(p + 1);
+			} else if(isWhitespace(c)) {
+				p = skipWhitespace(p + 1);
+			} else if(isNameChar(c)) {
+				// no whitespace is needed between attributes
+				p = attribute(p);
+			} else {
+				throw new IllegalParseStateException(c, State.ATTRIBUTE_NAME_START);
+			}
+			if(p == length) {
+				return p;
+			}
+			c = at(p);
+		}
+	}
+
+	private int emptyElementEnd(int p) {
+		if(p == length) {
+			return p;
+		}
+		final char c = at(p);
+		if(c != '>') {
+			throw new IllegalParseStateException(c, State.ELEMENT_EMPTY_END);
+		}
+		handler.endAttributes();
+		handler.endElement();
+		pop();
+		return p + 1;
+	}
+
+	// returns the position after the closing quote of the value
+	private int attribute(int start) {
+		int p = name(start + 1);
+		if(p == length) {
+			return p;
+		}
+		boolean report = projection == null || steps[depth].keeps(chars, base + start, p - start);
+		if(lazyAttributes && !isNamespaceDeclaration(chars, base + start, p - start)) {
+			attributesDeferred = true;
+			report = false;
+		}
+		char c = at(p);
+		if(isWhitespace(c)) {
+			if(report) {
+				handler.attributeName(seq, start, p - start);
+			}
+			p = skipWhitespace(p + 1);
+			if(p == length) {
+				return p;
+			}
+			c = at(p);
+			if(c != '=') {
+				throw new IllegalParseStateException(c, State.EQUALS_START);
+			}
+		} else if(c == '=') {
+			if(report) {
+				handler.attributeName(seq, start, p - start);
+			}
+		} else {
+			throw new IllegalParseStateException(c, State.ATTRIBUTE_NAME);
+		}
+		p = skipWhitespace(p + 1);
+		if(p == length) {
+			return p;
+		}
+		final char quote = at(p);
+		if(quote != '\'' && quote != '"') {
+			throw new IllegalParseStateException(quote, State.ATTRIBUTE_VALUE_START);
+		}
+		final int value = p + 1;
+		final char[] chars = this.chars;
+		final int base = this.base, length = this.length;
+		for(p = value ; p < length ; ++p) {
+			c = chars[base + p];
+			if(c == quote) {
+				if(report) {
+					handler.attributeValue(seq, value, p - value);
+				}
+				return p + 1;
+			} else if(!isChar(c)) {
+				// State is only loaded to report an error, which keeps it out of the first parse
+				throw new IllegalParseStateException(c, quote == '\'' ? State.ATTRIBUTE_VALUE_APOS : State.ATTRIBUTE_VALUE_QUOT);
+			}
+		}
+		return p;
+	}
+
+	// as in Element.Builder every name starting with xmlns declares a namespace
+	static boolean isNamespaceDeclaration(@Nonnull char[] chars, int offset, int length) {
+		return length >= 5 && chars[offset] == 'x' && chars[offset + 1] == 'm' && chars[offset + 2] == 'l'
+			&& chars[offset + 3] == 'n' && chars[offset + 4] == 's';
+	}
+
+	private int endTag(int p) {
+		if(p == length) {
+			return p;
+		}
+		char c = at(p);
+		if(!isNameStartChar(c)) {
+			throw new IllegalParseStateException(c, State.ETAG_NAME_START);
+		}
+		p = name(p + 1);
+		if(p == length) {
+			return p;
+		}
+		c = at(p);
+		if(isWhitespace(c)) {
+			p = skipWhitespace(p + 1);
+			if(p == length) {
+				return p;
+			}
+			c = at(p);
+			if(c != '>') {
+				throw new IllegalParseStateException(c, State.ELEMENT_END);
+			}
+		} else if(c != '>') {
+			throw new IllegalParseStateException(c, State.ETAG_NAME);
+		}
+		handler.endElement();
+		pop();
+		return p + 1;
+	}
+
+	// after <!, a CDATA section, a comment, or a DOCTYPE which is skipped
+	private int declaration(int p) {
+		if(p == length) {
+			return p;
+		}
+		char c = at(p);
+		if(c == '[') {
+			return cdata(p + 1);
+		} else if(c == '-') {
+			return comment(p + 1);
+		} else if(!isNameChar(c)) {
+			throw new IllegalParseStateException(c, State.DECLARATION_START);
+		}
+		for(++p ; p < length ; ++p) {
+			c = at(p);
+			if(c == '>') {
+				return p + 1;
+			} else if(c == '[') {
+				return internalSubset(p + 1);
+			} else if(!isChar(c)) {
+				throw new IllegalParseStateException(c, State.CHARACTERS);
+			}
+		}
+		return p;
+	}
+
+	// after <!-, a comment runs to the next -->, whatever > it holds
+	private int comment(int p) {
+		if(p == length) {
+			return p;
+		}
+		final char c = at(p);
+		if(c != '-') {
+			throw new IllegalParseStateException(c, State.COMMENT_START);
+		}
+		final int start = p + 1;
+		for(p = start ; ; ++p) {
+			p = indexOf('-', p);
+			if(p + 2 >= length) {
+				return length;
+			}
+			if(at(p + 1) == '-' && at(p + 2) == '>') {
+				if(building()) {
+					handler.comment(seq, start, p - start);
+				}
+				return p + 3;
+			}
+		}
+	}
+
+	private int internalSubset(int p) {
+		p = indexOf(']', p);
+		if(p == length) {
+			return p;
+		}
+		for(++p ; p < length ; ++p) {
+			final char c = at(p);
+			if(c == '>') {
+				return p + 1;
+			} else if(!isWhitespace(c)) {
+				throw new IllegalParseStateException(c, State.DECLARATION_END);
+			}
+		}
+		return p;
+	}
+
+	// after <![, the CDATA keyword runs to the next [
+	private int cdata(int p) {
+		p = indexOf('[', p);
+		if(p == length) {
+			return p;
+		}
+		final int start = p + 1;
+		for(p = start ; ; ) {
+			p = indexOf(']', p);
+			if(p + 1 >= length) {
+				return length;
+			}
+			if(at(p + 1) != ']') {
+				p += 2;
+				continue;
+			}
+			if(p + 2 >= length) {
+				return length;
+			}
+			if(at(p + 2) == '>') {
+				if(building()) {
+					handler.characters(seq, start, p - start);
+				}
+				return p + 3;
+			}
+			// as in XMLParser the char after ]] is consumed even if it is a ]
+			p += 3;
+		}
+	}
+
+	private int processingInstruction(int start) {
+		if(start == length) {
+			return start;
+		}
+		char c = at(start);
+		if(!isNameChar(c)) {
+			throw new IllegalParseStateException(c, State.PROCESSING_INSTRUCTION_START);
+		}
+		int p = name(start + 1);
+		if(p == length) {
+			return p;
+		}
+		c = at(p);
+		if(!isWhitespace(c)) {
+			throw new IllegalParseStateException(c, State.PROCESSING_INSTRUCTION);
+		}
+		for(++p ; p < length ; ++p) {
+			c = at(p);
+			if(c == '?') {
+				if(building()) {
+					handler.processingInstruction(seq, start, p - start);
+				}
+				if(++p == length) {
+					return p;
+				}
+				c = at(p);
+				if(c != '>') {
+					throw new IllegalParseStateException(c, State.PROCESSING_INSTRUCTION_END);
+				}
+				return p + 1;
+			} else if(!isChar(c)) {
+				throw new IllegalParseStateException(c, State.PROCESSING_INSTRUCTION_CHARS);
+			}
+		}
+		return p;
+	}
+}
@@ -0,0 +1,61 @@
+package net.cheney.snax.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A view of length chars of a source {@link CharSequence} starting at offset. The chars are only 
+ * copied into a String the first time {@link #toString()} is called, the String is then kept.
+ * <p>
+ * The source is retained for as long as the slice is, and must not be modified while it is.
+ */
+@Immutable
+public final class CharSlice implements CharSequence {
+
+	private final CharSequence source;
+	
+	private final int offset, length;
+	
+	// racy single check, Strings are safely published so the worst case is copying more than once
+	private String string;
+
+	public CharSlice(@Nonnull CharSequence source, int offset, int length) {
+		if(offset < 0 || length < 0 || offset + length > source.length()) {
+			throw new IndexOutOfBoundsException(String.format("%d chars at %d of %d", length, offset, source.length()));
+		}
+		this.source = source;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(String.format("%d of %d", index, length));
+		}
+		return source.charAt(offset + index);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(String.format("%d to %d of %d", start, end, length));
+		}
+		return new CharSlice(source, offset + start, end - start);
+	}
+	
+	@Override
+	public String toString() {
+		String s = string;
+		if(s == null) {
+			s = source.subSequence(offset, offset + length).toString();
+			string = s;
+		}
+		return s;
+	}
+}
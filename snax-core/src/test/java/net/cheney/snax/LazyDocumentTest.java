@@ -0,0 +1,120 @@
+package net.cheney.snax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.QName;
+import net.cheney.snax.model.Text;
+import net.cheney.snax.parser.XMLParser;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class LazyDocumentTest {
+
+	@Test public void testMatchesEagerParse() throws IOException {
+		for (String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			assertEquals(name, SNAX.parse(xml).rootElement(), SNAX.parseLazy(xml).rootElement());
+		}
+	}
+
+	@Test public void testValuesAreReadFromTheSource() {
+		StringBuilder xml = new StringBuilder("<a x='1'>foo<!--c--></a>");
+		Document doc = SNAX.parseLazy(xml);
+		// nothing has been copied yet, so the change shows through
+		xml.setCharAt(xml.indexOf("foo"), 'g');
+		xml.setCharAt(xml.indexOf("'1'") + 1, '2');
+		assertEquals(new Element("a", new Attribute("x", "2"), new Text("goo")), doc.rootElement());
+		// once read, a value is kept
+		xml.setCharAt(xml.indexOf("goo"), 'b');
+		assertEquals("goo", doc.rootElement().text());
+	}
+
+	@Test public void testCharBufferPositionMayMove() {
+		CharBuffer buffer = CharBuffer.wrap("<a>foo</a>");
+		Document doc = SNAX.parseLazy(buffer);
+		buffer.position(3);
+		assertEquals("foo", doc.rootElement().text());
+	}
+
+	@Test public void testDeferredSubtreesMatchEagerParse() throws IOException {
+		for (String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			for (int depth = 0; depth < 4; depth++) {
+				assertEquals(name + " " + depth, SNAX.parse(xml).rootElement(), SNAX.parseLazy(xml, depth).rootElement());
+			}
+		}
+	}
+
+	@Test public void testDeferredContentIsParsedWhenRead() {
+		Document doc = SNAX.parseLazy("<a><b x='1'>text<1c/></b><d>e</d></a>", 1);
+		Element b = doc.rootElement().childElements().first();
+		// attributes are built in the first pass
+		assertEquals("1", b.attributes().first().value());
+		try {
+			b.children().any();
+			fail();
+		} catch (XMLParser.IllegalParseStateException e) {
+			// the error in b's content is found when it is read
+		}
+	}
+
+	@Test public void testDeferredContentSeesAncestorNamespaces() {
+		Document doc = SNAX.parseLazy("<a xmlns:p='urn:p'><b xmlns='urn:d'><p:c> x <d/></p:c></b></a>", 1);
+		Element c = doc.rootElement().childElements().first().childElements().first();
+		assertEquals(QName.valueOf(Namespace.valueOf("p", "urn:p"), "c"), c.qname());
+		assertEquals(" x ", c.text());
+		assertEquals(QName.valueOf(Namespace.valueOf("", "urn:d"), "d"), c.childElements().first().qname());
+	}
+
+	@Test public void testLazyAttributesMatchEagerParse() throws IOException {
+		for (String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			for (int depth : new int[] { 0, 1, 2, 3, Integer.MAX_VALUE }) {
+				assertEquals(name + " " + depth, SNAX.parse(xml).rootElement(), SNAX.parseLazy(xml, depth, true).rootElement());
+			}
+		}
+	}
+
+	@Test public void testAttributesAreTokenizedWhenRead() {
+		StringBuilder xml = new StringBuilder("<a x='1' y = \"a'>b\"><b z='2'/></a>");
+		Document doc = SNAX.parseLazy(xml, Integer.MAX_VALUE, true);
+		// not even the names have been read yet
+		xml.setCharAt(xml.indexOf("x"), 'w');
+		Element a = doc.rootElement();
+		assertEquals(new Attribute("w", "1"), a.attributes().first());
+		assertEquals("a'>b", a.getAttribute(QName.valueOf("y")));
+		assertEquals(new Element("a", new Attribute("w", "1"), new Attribute("y", "a'>b"), new Element("b", new Attribute("z", "2"))), a);
+	}
+
+	@Test public void testLazyAttributesKeepNamespaceDeclarations() {
+		String xml = "<p:a xmlns:p='urn:p' x='1'><p:b xmlns='urn:d'/></p:a>";
+		Element a = SNAX.parseLazy(xml, Integer.MAX_VALUE, true).rootElement();
+		assertEquals(QName.valueOf(Namespace.valueOf("p", "urn:p"), "a"), a.qname());
+		assertEquals(new Attribute("x", "1"), a.attributes().first());
+		assertEquals(SNAX.parse(xml).rootElement(), a);
+	}
+
+	@Test(expected = XMLParser.IllegalParseStateException.class)
+	public void testLazyAttributesAreChecked() {
+		SNAX.parseLazy("<a><b x='1' y=2/></a>", Integer.MAX_VALUE, true);
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = LazyDocumentTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is, "UTF-8");
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
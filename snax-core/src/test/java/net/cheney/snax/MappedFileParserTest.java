@@ -0,0 +1,93 @@
+package net.cheney.snax;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+import net.cheney.snax.model.Document;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class MappedFileParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testParsePath() throws IOException {
+		File file = createFile("<foo bar='\u00FCber'><baz>\u65E5\u672C\u8A9E</baz></foo>".getBytes(UTF_8));
+		try {
+			Document doc = SNAX.parse(file.toPath());
+			assertEquals(SNAX.parse("<foo bar='\u00FCber'><baz>\u65E5\u672C\u8A9E</baz></foo>").rootElement(), doc.rootElement());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test public void testParseInWindows() throws IOException {
+		StringBuilder sb = new StringBuilder("<feed xmlns='urn:feed'>");
+		for (int i = 0; i < 200; i++) {
+			sb.append("<entry id='").append(i).append("' title='\u00E9t\u00E9'>\uD834\uDD1E \u65E5\u672C\u8A9E ").append(i).append("<![CDATA[a]]b]]></entry>");
+		}
+		sb.append("</feed>");
+		String xml = sb.toString();
+		Document expected = SNAX.parse(xml);
+		File file = createFile(xml.getBytes(UTF_8));
+		try {
+			for (long windowSize : new long[] { 4, 5, 7, 64, 1000 }) {
+				FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				try {
+					Document doc = SNAX.parse(channel, UTF_8, windowSize);
+					assertEquals("window " + windowSize, expected.rootElement(), doc.rootElement());
+				} finally {
+					channel.close();
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test public void testParseResourceInWindows() throws IOException {
+		byte[] bytes = loadResource("xmlconf.xml");
+		Document expected = SNAX.parse(UTF_8.decode(ByteBuffer.wrap(bytes)));
+		File file = createFile(bytes);
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				assertEquals(expected.rootElement(), SNAX.parse(channel, UTF_8, 1021).rootElement());
+			} finally {
+				channel.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private File createFile(byte[] bytes) throws IOException {
+		File file = File.createTempFile("snax", ".xml");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = MappedFileParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -22,6 +22,13 @@ public class NamespaceUnitTest {
 
 	}
 	
+	@Test
+	public void testNamespacesAreInterned() {
+		Assert.assertSame(Namespace.valueOf("a", "http://cheney.net/a"), Namespace.valueOf("a", "http://cheney.net/a"));
+		Assert.assertSame(Namespace.NO_NAMESPACE, Namespace.valueOf(Namespace.BLANK_PREFIX, Namespace.BLANK_URI));
+		Assert.assertNotSame(Namespace.valueOf("a", "http://cheney.net/a"), Namespace.valueOf("b", "http://cheney.net/a"));
+	}
+	
 	@Test
 	public void testNamespacesWithoutPrefixIsEqualToAPrefixedNamespace() {
 		Namespace a = Namespace.valueOf("a", "http://cheney.net/a");
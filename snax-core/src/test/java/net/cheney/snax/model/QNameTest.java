@@ -1,5 +1,8 @@
 package net.cheney.snax.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.cheney.snax.model.QName;
 
 import org.junit.Assert;
@@ -14,4 +17,51 @@ public class QNameTest {
 		Assert.assertEquals(foo, bar);
 	}
 	
+	@Test public void testInterned() {
+		Namespace ns = Namespace.valueOf("q", "http://cheney.net/q");
+		Assert.assertSame(QName.valueOf("a"), QName.valueOf("a"));
+		Assert.assertSame(QName.valueOf(ns, "a"), QName.valueOf(Namespace.valueOf("q", "http://cheney.net/q"), "a"));
+		Assert.assertNotSame(QName.valueOf(ns, "a"), QName.valueOf("a"));
+	}
+	
+	@Test public void testDifferentPrefixesAreEqualButNotSame() {
+		QName a = QName.valueOf(Namespace.valueOf("a", "http://cheney.net/q"), "foo");
+		QName b = QName.valueOf(Namespace.valueOf("b", "http://cheney.net/q"), "foo");
+		Assert.assertEquals(a, b);
+		Assert.assertEquals(a.hashCode(), b.hashCode());
+		Assert.assertNotSame(a, b);
+		Assert.assertEquals("b", b.prefix());
+	}
+	
+	@Test public void testUnusedNamesAreDropped() throws InterruptedException {
+		int namespaces = Namespace.INTERNED.size();
+		Namespace ns = Namespace.valueOf("n", "http://cheney.net/many");
+		List<QName> names = new ArrayList<QName>();
+		for(int i = 0; i < 100000; ++i) {
+			names.add(QName.valueOf(ns, "n" + i));
+		}
+		for(int i = 0; i < names.size(); i += 997) {
+			Assert.assertSame(names.get(i), QName.valueOf(ns, "n" + i));
+		}
+		Assert.assertEquals(100000, ns.qnames().size());
+		names = null;
+		for(int i = 0; i < 100 && ns.qnames().size() > 0; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(0, ns.qnames().size());
+		ns = null;
+		for(int i = 0; i < 100 && Namespace.INTERNED.size() > namespaces; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(Namespace.INTERNED.size() <= namespaces);
+	}
+	
+	@Test public void testParsedNamesAreInterned() {
+		Element root = net.cheney.snax.SNAX.parse("<a:root xmlns:a='http://cheney.net/q'><a:child/></a:root>").rootElement();
+		Assert.assertSame(QName.valueOf(Namespace.valueOf("a", "http://cheney.net/q"), "root"), root.qname());
+		Assert.assertTrue(root.getChildren(QName.valueOf(Namespace.valueOf("x", "http://cheney.net/q"), "child")).any());
+	}
+	
 }
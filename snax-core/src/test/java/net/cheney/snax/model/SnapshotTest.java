@@ -0,0 +1,113 @@
+package net.cheney.snax.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class SnapshotTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testRoundTrip() throws IOException {
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml", "xmltest.xml", "time.xml", "errata4e.xml" }) {
+			Document document = SNAX.parse(loadResource(name));
+			Document loaded = Snapshot.read(Snapshot.toByteArray(document));
+			assertEquals(name, document, loaded);
+			assertEquals(name, XMLWriter.write(document), XMLWriter.write(loaded));
+		}
+	}
+
+	@Test public void testNamesAreInterned() {
+		Document document = SNAX.parse("<a:x xmlns:a='urn:a' xmlns='urn:b'><y a:z='1' w='2'/><a:x/></a:x>");
+		Element root = Snapshot.read(Snapshot.toByteArray(document)).rootElement();
+		assertSame(QName.valueOf(Namespace.valueOf("a", "urn:a"), "x"), root.qname());
+		assertSame(Namespace.valueOf("", "urn:b"), root.childElements().first().namespace());
+		assertEquals(document.rootElement(), root);
+	}
+
+	@Test public void testPrefixWithoutAURI() {
+		Namespace p = Namespace.valueOf("p");
+		Document document = new Document(new Element(QName.valueOf(p, "a"), new Attribute(p, "b", "c"), new Element("d")));
+		Document loaded = Snapshot.read(Snapshot.toByteArray(document));
+		assertEquals(document, loaded);
+		assertSame(p, loaded.rootElement().namespace());
+		assertEquals("p", loaded.rootElement().prefix());
+		assertEquals(XMLWriter.write(document), XMLWriter.write(loaded));
+	}
+
+	@Test public void testEveryNodeType() {
+		Document document = new Document(new ProcessingInstruction("xml-stylesheet", "href='a.xsl'"), new Comment("before"),
+				new Element("a", new Attribute("b", "\u00E9\uD83D\uDE00"), new Text("text"), new Comment("c"),
+						new ProcessingInstruction("pi", ""), new Element("d"), new Text("")));
+		assertEquals(document, Snapshot.read(Snapshot.toByteArray(document)));
+	}
+
+	@Test public void testLazyDocument() throws IOException {
+		String xml = loadResource("namespace.xml");
+		assertEquals(SNAX.parse(xml), Snapshot.read(Snapshot.toByteArray(SNAX.parseLazy(xml, 1, true))));
+	}
+
+	@Test public void testConsecutiveSnapshots() throws IOException {
+		Document first = SNAX.parse("<a>1</a>"), second = SNAX.parse("<b x='2'/>");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Snapshot.write(first, out);
+		Snapshot.write(second, out);
+		byte[] bytes = out.toByteArray();
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		assertEquals(first, Snapshot.read(direct));
+		assertEquals(second, Snapshot.read(direct));
+		assertEquals(0, direct.remaining());
+	}
+
+	@Test public void testPath() throws IOException {
+		Document document = SNAX.parse(loadResource("basic.xml"));
+		Path file = Files.createTempFile("snax", ".snapshot");
+		try {
+			Snapshot.write(document, file);
+			assertEquals(document, Snapshot.read(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNotASnapshot() {
+		Snapshot.read("<a/>".getBytes(UTF_8));
+	}
+
+	@Test public void testTruncated() {
+		byte[] bytes = Snapshot.toByteArray(SNAX.parse("<a b='c'><d>e</d></a>"));
+		for(int length = 0 ; length < bytes.length ; ++length) {
+			try {
+				Snapshot.read(Arrays.copyOf(bytes, length));
+				throw new AssertionError(length);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = SnapshotTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is, UTF_8.name());
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
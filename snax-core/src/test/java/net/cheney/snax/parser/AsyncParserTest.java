@@ -0,0 +1,132 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String[] RESOURCES = { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" };
+
+	private ExecutorService executor;
+
+	@Before public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test public void testFileChannel() throws Exception {
+		for(String name : RESOURCES) {
+			for(int bufferSize : new int[] { 7, 4096 }) {
+				byte[] bytes = loadResource(name);
+				File file = createFile(bytes);
+				AsynchronousFileChannel channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+				try {
+					assertSameDocument(name, SNAX.parse(new String(bytes, UTF_8)), new AsyncParser(bufferSize).parse(channel, UTF_8).get());
+				} finally {
+					channel.close();
+					file.delete();
+				}
+			}
+		}
+	}
+
+	@Test public void testReadableByteChannel() throws Exception {
+		for(String name : RESOURCES) {
+			byte[] bytes = loadResource(name);
+			Document expected = SNAX.parse(new String(bytes, UTF_8));
+			assertSameDocument(name, expected, new AsyncParser(7).parse(Channels.newChannel(new ByteArrayInputStream(bytes)), UTF_8, executor).get());
+			Charset utf16 = Charset.forName("UTF-16");
+			byte[] encoded = new String(bytes, UTF_8).getBytes(utf16);
+			assertSameDocument(name, expected, SNAX.parseAsync(Channels.newChannel(new ByteArrayInputStream(encoded)), utf16, executor).get());
+		}
+	}
+
+	@Test public void testBuffersAreReturned() throws Exception {
+		AsyncParser parser = new AsyncParser(16);
+		byte[] bytes = "<a><b>text</b></a>".getBytes(UTF_8);
+		for(int i = 0; i < 3; ++i) {
+			parser.parse(Channels.newChannel(new ByteArrayInputStream(bytes)), UTF_8, executor).get();
+		}
+		try {
+			parser.parse(Channels.newChannel(new ByteArrayInputStream("<a><b>".getBytes(UTF_8))), UTF_8, executor).get();
+		} catch(ExecutionException e) {
+			// expected
+		}
+		assertEquals(1, parser.buffers().size());
+	}
+
+	@Test public void testIncompleteDocument() throws Exception {
+		try {
+			new AsyncParser(4).parse(Channels.newChannel(new ByteArrayInputStream("<a><b>".getBytes(UTF_8))), UTF_8, executor).get();
+			fail();
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test public void testClosedChannel() throws Exception {
+		File file = createFile("<a/>".getBytes(UTF_8));
+		AsynchronousFileChannel channel = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+		channel.close();
+		file.delete();
+		try {
+			SNAX.parseAsync(channel).get();
+			fail();
+		} catch(ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	private static void assertSameDocument(String message, Document expected, Document actual) {
+		assertEquals(message, XMLWriter.write(expected), XMLWriter.write(actual));
+	}
+
+	private File createFile(byte[] bytes) throws IOException {
+		File file = File.createTempFile("snax", ".xml");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = AsyncParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Text;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ByteBufferParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	@Test public void testUTF8MultiByteNamesAndValues() {
+		String xml = "<f\u00F6\u00F6 b\u00E4r='\u20AC1'>\u65E5\u672C\uD834\uDD1E</f\u00F6\u00F6>";
+		Element expected = new Element("f\u00F6\u00F6", new Attribute("b\u00E4r", "\u20AC1"), new Text("\u65E5\u672C\uD834\uDD1E"));
+		Document doc = SNAX.parse(ByteBuffer.wrap(xml.getBytes(UTF_8)), UTF_8);
+		assertEquals(expected, doc.rootElement());
+	}
+
+	@Test public void testLatin1() {
+		String xml = "<caf\u00E9>cr\u00E8me br\u00FBl\u00E9e</caf\u00E9>";
+		Document doc = SNAX.parse(ByteBuffer.wrap(xml.getBytes(ISO_8859_1)), ISO_8859_1);
+		assertEquals(new Element("caf\u00E9", new Text("cr\u00E8me br\u00FBl\u00E9e")), doc.rootElement());
+	}
+
+	@Test public void testAFailedParseDoesNotAffectTheNext() {
+		for(Charset charset : new Charset[] { UTF_8, Charset.forName("UTF-16BE"), null }) {
+			ByteBuffer malformed = ByteBuffer.wrap("<a><secret>pw</secret><c x='1' <".getBytes(charset == null ? UTF_8 : charset));
+			ByteBuffer valid = ByteBuffer.wrap("<r><z/></r>".getBytes(charset == null ? UTF_8 : charset));
+			try {
+				if(charset == null) {
+					SNAX.parse(malformed);
+				} else {
+					SNAX.parse(malformed, charset);
+				}
+			} catch(RuntimeException e) {
+				// expected
+			}
+			Document doc = charset == null ? SNAX.parse(valid) : SNAX.parse(valid, charset);
+			assertEquals(String.valueOf(charset), "<r><z/></r>", XMLWriter.write(doc));
+		}
+	}
+
+	@Test public void testCommentsAreSkippedToTheirEnd() {
+		String xml = "<!-- a > b --><a>x<!-- <b/> -->y<!---->z</a>";
+		Document doc = SNAX.parse(ByteBuffer.wrap(xml.getBytes(UTF_8)), UTF_8);
+		assertEquals(new Element("a", new Text("x"), new Text("y"), new Text("z")), doc.rootElement());
+	}
+
+	@Test public void testDirectBuffer() {
+		byte[] xml = "<foo bar='1'><baz>\u00FCber</baz></foo>".getBytes(UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(xml.length);
+		buffer.put(xml).flip();
+		Document doc = SNAX.parse(buffer, UTF_8);
+		assertEquals(new Element("foo", new Attribute("bar", "1"), new Element("baz", new Text("\u00FCber"))), doc.rootElement());
+		assertEquals(buffer.limit(), buffer.position());
+	}
+
+	@Test public void testMalformedUTF8IsReplaced() {
+		byte[] xml = { '<', 'a', '>', 'x', (byte) 0xC3, 'y', (byte) 0xFF, '<', '/', 'a', '>' };
+		Document expected = SNAX.parse(UTF_8.decode(ByteBuffer.wrap(xml)));
+		Document doc = SNAX.parse(ByteBuffer.wrap(xml), UTF_8);
+		assertEquals(expected.rootElement(), doc.rootElement());
+	}
+
+	@Test public void testMatchesDecodeThenParse() throws IOException {
+		for (String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			ByteBuffer buffer = ByteBuffer.wrap(loadResource(name));
+			Document expected = SNAX.parse(UTF_8.decode(buffer.duplicate()));
+			Document doc = SNAX.parse(buffer, UTF_8);
+			assertEquals(name, expected.rootElement(), doc.rootElement());
+		}
+	}
+
+	@Test public void testLongRunsInChunks() {
+		StringBuilder run = new StringBuilder();
+		for (int i = 0; i < 100; ++i) {
+			run.append("text \u00E9\u65E5 ").append(i).append(i % 7 == 0 ? "]" : "").append(i % 11 == 0 ? "\t" : "");
+		}
+		String xml = "<a b='" + run + "' c=\"" + run + "\">" + run + "<![CDATA[" + run + "]]></a>";
+		byte[] bytes = xml.getBytes(UTF_8);
+		Document expected = SNAX.parse(xml);
+		for (int chunk : new int[] { 1, 2, 3, 5, 8, 13, 64, bytes.length }) {
+			XMLParser parser = new XMLParser();
+			ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+			for (int i = 0; i < bytes.length; i += chunk) {
+				buffer.put(bytes, i, Math.min(chunk, bytes.length - i));
+				buffer.flip();
+				parser.parse(buffer, UTF_8);
+				buffer.compact();
+			}
+			assertEquals(String.valueOf(chunk), expected.rootElement(), parser.document().rootElement());
+		}
+	}
+
+	@Test(expected = XMLParser.IllegalParseStateException.class)
+	public void testControlCharacterInLongAttributeValue() {
+		SNAX.parse(ByteBuffer.wrap("<a b='0123456789abcdef\u0001'/>".getBytes(UTF_8)), UTF_8);
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = ByteBufferParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DelimitersTest {
+
+	private static final byte[] ALPHABET = { 'a', '<', '=', ';', ']', '\'', '"', '\t', 0x1F, 0x20, 0x7F, (byte) 0x80, (byte) 0xC3, (byte) 0xFF };
+
+	@Test public void testMatchesByteAtATimeSearch() {
+		Random random = new Random(42);
+		for (int n = 0; n < 2000; ++n) {
+			byte[] bytes = new byte[random.nextInt(40)];
+			for (int i = 0; i < bytes.length; ++i) {
+				// mostly plain text so that matches are spread out
+				bytes[i] = random.nextInt(4) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : (byte) 'x';
+			}
+			int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+			int to = from + random.nextInt(bytes.length - from + 1);
+			for (ByteBuffer buffer : buffers(bytes)) {
+				for (byte b : new byte[] { '<', ']' }) {
+					assertEquals(indexOf(bytes, from, to, b), Delimiters.indexOf(buffer, from, to, b));
+				}
+				for (byte quote : new byte[] { '\'', '"' }) {
+					assertEquals(indexOfQuoteOrNonPrintable(bytes, from, to, quote), Delimiters.indexOfQuoteOrNonPrintable(buffer, from, to, quote));
+				}
+			}
+		}
+	}
+
+	private ByteBuffer[] buffers(byte[] bytes) {
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		return new ByteBuffer[] { ByteBuffer.wrap(bytes), ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), direct };
+	}
+
+	private int indexOf(byte[] bytes, int from, int to, byte b) {
+		for (int i = from; i < to; ++i) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	private int indexOfQuoteOrNonPrintable(byte[] bytes, int from, int to, byte quote) {
+		for (int i = from; i < to; ++i) {
+			if (bytes[i] == quote || (bytes[i] & 0xFF) < 0x20 || (bytes[i] & 0xFF) > 0x7F) {
+				return i;
+			}
+		}
+		return to;
+	}
+}
@@ -0,0 +1,191 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.junit.Test;
+
+public class DocumentCacheTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testSameBytesShareADocument() {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		ByteBuffer buffer = bytes("<a x='1'><b>text</b></a>");
+		Document document = cache.parse(buffer);
+		assertEquals(0, buffer.position());
+		ByteBuffer direct = ByteBuffer.allocateDirect(buffer.remaining());
+		direct.put(buffer.duplicate()).flip();
+		assertSame(document, cache.parse(direct));
+		assertSame(document, cache.parse(bytes("<a x='1'><b>text</b></a>")));
+		assertNotSame(document, cache.parse(bytes("<a x='2'><b>text</b></a>")));
+		assertEquals(2, cache.hits());
+		assertEquals(2, cache.misses());
+		assertEquals(2, cache.size());
+		assertEquals(XMLWriter.write(SNAX.parse("<a x='1'><b>text</b></a>")), XMLWriter.write(document));
+	}
+
+	@Test public void testLargeInputDifferingInTheMiddle() {
+		StringBuilder xml = new StringBuilder("<a>");
+		for(int i = 0; i < 10000; ++i) {
+			xml.append("<b>").append(i % 10).append("</b>");
+		}
+		String first = xml.append("</a>").toString();
+		// one digit changed, far from either end
+		String second = first.replaceFirst("<b>7</b>", "<b>8</b>");
+		DocumentCache cache = new DocumentCache(64 << 20);
+		Document document = cache.parse(bytes(first));
+		Document other = cache.parse(bytes(second));
+		assertNotSame(document, other);
+		assertEquals(2, cache.size());
+		assertSame(other, cache.parse(bytes(second)));
+		assertEquals(XMLWriter.write(SNAX.parse(second)), XMLWriter.write(other));
+	}
+
+	@Test public void testMissAfterAFailedParse() {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		try {
+			cache.parse(bytes("<a><secret>pw</secret><c x='1' <"));
+		} catch(RuntimeException e) {
+			// expected
+		}
+		assertEquals(0, cache.size());
+		Document document = cache.parse(bytes("<r><z/></r>"));
+		assertEquals("<r><z/></r>", XMLWriter.write(document));
+		assertSame(document, cache.parse(bytes("<r><z/></r>")));
+	}
+
+	@Test public void testTemplatedDocuments() {
+		StringBuilder padding = new StringBuilder();
+		for(int i = 0; i < 1000; ++i) {
+			padding.append("<b>x</b>");
+		}
+		DocumentCache cache = new DocumentCache(64 << 20);
+		List<Document> documents = new ArrayList<Document>();
+		for(int i = 0; i < 200; ++i) {
+			documents.add(cache.parse(bytes("<a>" + padding + "<id>" + i + "</id>" + padding + "</a>")));
+		}
+		assertEquals(200, cache.size());
+		for(int i = 0; i < 200; ++i) {
+			ByteBuffer buffer = bytes("<a>" + padding + "<id>" + i + "</id>" + padding + "</a>");
+			// equal bytes whatever the order the buffer reads multibyte values in
+			buffer.order(i % 2 == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+			assertSame(documents.get(i), cache.parse(buffer));
+		}
+		assertEquals(200, cache.hits());
+	}
+
+	@Test public void testCharsetIsPartOfTheKey() {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		Document detected = cache.parse(bytes("<a>x</a>"));
+		assertNotSame(detected, cache.parse(bytes("<a>x</a>"), Charset.forName("ISO-8859-1")));
+		assertSame(detected, cache.parse(bytes("<a>x</a>"), null));
+	}
+
+	@Test public void testRecentlyUsedDocumentsAreKept() {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		cache.parse(bytes("<a>0</a>"));
+		long weight = cache.weight();
+		cache = new DocumentCache(3 * weight);
+		Document first = cache.parse(bytes("<a>0</a>"));
+		Document second = cache.parse(bytes("<a>1</a>"));
+		cache.parse(bytes("<a>2</a>"));
+		assertSame(first, cache.parse(bytes("<a>0</a>")));
+		cache.parse(bytes("<a>3</a>"));
+		assertEquals(1, cache.evictions());
+		assertEquals(3, cache.size());
+		assertEquals(3 * weight, cache.weight());
+		assertSame(first, cache.parse(bytes("<a>0</a>")));
+		assertNotSame(second, cache.parse(bytes("<a>1</a>")));
+	}
+
+	@Test public void testLargeDocumentIsNotCached() {
+		DocumentCache cache = new DocumentCache(64);
+		Document document = cache.parse(bytes("<a>0</a>"));
+		assertNotSame(document, cache.parse(bytes("<a>0</a>")));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.weight());
+	}
+
+	@Test public void testClear() {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		Document document = cache.parse(bytes("<a>0</a>"));
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.weight());
+		assertNotSame(document, cache.parse(bytes("<a>0</a>")));
+	}
+
+	@Test public void testModifiedFileIsParsedAgain() throws Exception {
+		DocumentCache cache = new DocumentCache(1 << 20);
+		Path file = Files.createTempFile("snax", ".xml");
+		try {
+			Files.write(file, "<a>0</a>".getBytes(UTF_8));
+			Document document = cache.parse(file);
+			assertSame(document, cache.parse(file.getParent().resolve(".").resolve(file.getFileName())));
+			long weight = cache.weight();
+			Files.write(file, "<a>10</a>".getBytes(UTF_8));
+			Document modified = cache.parse(file);
+			assertEquals("10", modified.rootElement().text());
+			assertSame(modified, cache.parse(file));
+			assertEquals(1, cache.size());
+			assertEquals(weight + 2, cache.weight());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test public void testThreads() throws Exception {
+		final String[] documents = new String[20];
+		for(int i = 0; i < documents.length; ++i) {
+			documents[i] = "<a i='" + i + "'><b>" + i + "</b></a>";
+		}
+		final DocumentCache cache = new DocumentCache(1 << 20);
+		cache.parse(bytes(documents[10]));
+		final long max = 8 * cache.weight();
+		final DocumentCache bounded = new DocumentCache(max);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for(int i = 0; i < 2000; ++i) {
+				final String xml = documents[(i * 7) % documents.length];
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return XMLWriter.write(bounded.parse(bytes(xml)));
+					}
+				}));
+			}
+			for(int i = 0; i < results.size(); ++i) {
+				assertEquals(XMLWriter.write(SNAX.parse(documents[(i * 7) % documents.length])), results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(bounded.weight() <= max);
+		assertEquals(2000, bounded.hits() + bounded.misses());
+		assertTrue(bounded.evictions() > 0);
+	}
+
+	private static ByteBuffer bytes(String xml) {
+		return ByteBuffer.wrap(xml.getBytes(UTF_8));
+	}
+}
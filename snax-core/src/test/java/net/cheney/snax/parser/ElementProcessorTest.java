@@ -0,0 +1,241 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Element;
+
+import org.junit.Test;
+
+public class ElementProcessorTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static String stream(int messages) {
+		StringBuilder sb = new StringBuilder("<stream:stream xmlns:stream='http://etherx.jabber.org/streams' xmlns='jabber:client'>");
+		for(int i = 0; i < messages; i++) {
+			sb.append("<message to='user").append(i).append("'><body>h\u00E9llo ").append(i).append("</body></message>");
+			if(i % 3 == 0) {
+				sb.append("<presence/>");
+			}
+		}
+		return sb.append("</stream:stream>").toString();
+	}
+
+	@Test public void testElementsAtDepth() {
+		String xml = stream(50);
+		for(int chunkSize : new int[] { 1, 7, 100000 }) {
+			Chunks chunks = new Chunks(xml, chunkSize);
+			Collector collector = new Collector(Long.MAX_VALUE);
+			ElementProcessor processor = new ElementProcessor(2);
+			processor.subscribe(collector);
+			chunks.subscribe(processor);
+			assertEquals(records(xml, "/*/*"), collector.elements);
+			assertTrue(collector.complete);
+			assertNull(collector.error);
+		}
+	}
+
+	@Test public void testNothingIsParsedWithoutDemand() {
+		String xml = stream(1000);
+		Chunks chunks = new Chunks(xml, 64);
+		Collector collector = new Collector(0);
+		ElementProcessor processor = new ElementProcessor(2);
+		chunks.subscribe(processor);
+		processor.subscribe(collector);
+		assertEquals(0, chunks.requested);
+		collector.subscription.request(2);
+		assertEquals(2, collector.elements.size());
+		assertTrue(chunks.requested < 5);
+		int requested = chunks.requested;
+		collector.subscription.request(1);
+		assertEquals(3, collector.elements.size());
+		assertTrue(chunks.requested <= requested + 2);
+		assertFalse(collector.complete);
+	}
+
+	@Test public void testRequestOneAtATime() {
+		String xml = stream(200);
+		Chunks chunks = new Chunks(xml, 13);
+		Collector collector = new Collector(1) {
+			@Override
+			public void onNext(Element element) {
+				super.onNext(element);
+				subscription.request(1);
+			}
+		};
+		ElementProcessor processor = new ElementProcessor(2);
+		processor.subscribe(collector);
+		chunks.subscribe(processor);
+		assertEquals(records(xml, "/*/*"), collector.elements);
+		assertTrue(collector.complete);
+	}
+
+	@Test public void testRoot() {
+		Chunks chunks = new Chunks("<a><b/></a>", 3);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		ElementProcessor processor = new ElementProcessor(1);
+		processor.subscribe(collector);
+		chunks.subscribe(processor);
+		assertEquals(SNAX.parse("<a><b/></a>").rootElement(), collector.elements.get(0));
+	}
+
+	@Test public void testIncompleteStream() {
+		Chunks chunks = new Chunks("<a><b/><b>", 3);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		ElementProcessor processor = new ElementProcessor(2);
+		processor.subscribe(collector);
+		chunks.subscribe(processor);
+		assertEquals(1, collector.elements.size());
+		assertTrue(collector.error instanceof IllegalStateException);
+		assertFalse(collector.complete);
+	}
+
+	@Test public void testParseErrorCancelsUpstream() {
+		Chunks chunks = new Chunks("<a><b/><b x=1/>" + stream(10), 4);
+		Collector collector = new Collector(Long.MAX_VALUE);
+		ElementProcessor processor = new ElementProcessor(2);
+		processor.subscribe(collector);
+		chunks.subscribe(processor);
+		assertTrue(collector.error instanceof XMLParser.IllegalParseStateException);
+		assertTrue(chunks.cancelled);
+	}
+
+	@Test public void testCancel() {
+		Chunks chunks = new Chunks(stream(100), 16);
+		Collector collector = new Collector(1);
+		ElementProcessor processor = new ElementProcessor(2);
+		processor.subscribe(collector);
+		chunks.subscribe(processor);
+		collector.subscription.cancel();
+		collector.subscription.request(10);
+		assertEquals(1, collector.elements.size());
+		assertTrue(chunks.cancelled);
+	}
+
+	@Test public void testOneSubscriber() {
+		ElementProcessor processor = new ElementProcessor(2);
+		processor.subscribe(new Collector(0));
+		Collector second = new Collector(0);
+		processor.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDepth() {
+		new ElementProcessor(0);
+	}
+
+	private static List<Element> records(String xml, String path) {
+		List<Element> records = new ArrayList<Element>();
+		RecordIterator iterator = SNAX.stream(xml, path);
+		while(iterator.hasNext()) {
+			records.add(iterator.next());
+		}
+		return records;
+	}
+
+	/**
+	 * Publishes the bytes of a document in chunks, synchronously, as they are requested.
+	 */
+	private static class Chunks implements Flow.Publisher<ByteBuffer> {
+
+		private final byte[] bytes;
+
+		private final int chunkSize;
+
+		private int position, requested;
+
+		private boolean cancelled;
+
+		private long demand;
+
+		private boolean emitting;
+
+		Chunks(String xml, int chunkSize) {
+			this.bytes = xml.getBytes(UTF_8);
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					requested++;
+					demand += n;
+					if(emitting) {
+						return;
+					}
+					emitting = true;
+					while(demand > 0 && !cancelled && position < bytes.length) {
+						demand--;
+						int length = Math.min(chunkSize, bytes.length - position);
+						ByteBuffer chunk = ByteBuffer.wrap(bytes, position, length).slice();
+						position += length;
+						subscriber.onNext(chunk);
+					}
+					emitting = false;
+					if(position == bytes.length && !cancelled) {
+						position++;
+						subscriber.onComplete();
+					}
+				}
+
+				@Override
+				public void cancel() {
+					cancelled = true;
+				}
+			});
+		}
+	}
+
+	private static class Collector implements Flow.Subscriber<Element> {
+
+		final List<Element> elements = new ArrayList<Element>();
+
+		private final long initialRequest;
+
+		Flow.Subscription subscription;
+
+		boolean complete;
+
+		Throwable error;
+
+		Collector(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if(initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(Element element) {
+			elements.add(element);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+		}
+
+		@Override
+		public void onComplete() {
+			complete = true;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.QName;
+
+import org.junit.Test;
+
+public class ElementStreamTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String[] MESSAGES = {
+		"<?xml version='1.0'?><login user='a'/>",
+		"\n<m:message xmlns:m='urn:m' to='b'><m:body>\u00E9t\u00E9 \uD834\uDD1E</m:body><!-- c --></m:message>\n",
+		"<ping/><!-- keepalive -->  ",
+		"<message><body><![CDATA[<not-a-tag/>]]></body></message>",
+	};
+
+	@Test public void testEachElementAsItCompletes() {
+		Collector collector = new Collector();
+		ElementStream stream = new ElementStream(collector);
+		for(String message : MESSAGES) {
+			stream.feed(message);
+		}
+		assertEquals(expected(), collector.elements);
+		assertEquals(QName.valueOf(Namespace.valueOf("m", "urn:m"), "message"), collector.elements.get(1).qname());
+		stream.endOfInput();
+	}
+
+	@Test public void testChunks() {
+		byte[] bytes = join().getBytes(UTF_8);
+		for(int chunkSize : new int[] { 1, 3, 7, 64 }) {
+			Collector collector = new Collector();
+			ElementStream stream = new ElementStream(collector);
+			for(int i = 0; i < bytes.length; i += chunkSize) {
+				stream.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+			}
+			stream.endOfInput();
+			assertEquals(expected(), collector.elements);
+		}
+	}
+
+	@Test public void testElementIsDeliveredBeforeTheNextStarts() {
+		Collector collector = new Collector();
+		ElementStream stream = new ElementStream(collector);
+		stream.feed("<a>1</a><b>");
+		assertEquals(1, collector.elements.size());
+		stream.feed("2</b>");
+		assertEquals(2, collector.elements.size());
+	}
+
+	@Test public void testManyMessages() throws IOException {
+		final int[] count = new int[1];
+		ElementStream stream = new ElementStream(new ElementStream.Listener() {
+			@Override
+			public void element(Element element) {
+				count[0]++;
+			}
+		});
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < 100000; i++) {
+			sb.append("<message id='").append(i).append("'><body>hello</body></message>");
+		}
+		stream.read(Channels.newChannel(new ByteArrayInputStream(sb.toString().getBytes(UTF_8))));
+		assertEquals(100000, count[0]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEndInsideAnElement() {
+		ElementStream stream = new ElementStream(new Collector());
+		stream.feed("<a/><b>");
+		stream.endOfInput();
+	}
+
+	@Test public void testReset() {
+		Collector collector = new Collector();
+		ElementStream stream = new ElementStream(collector);
+		try {
+			stream.feed("<a xmlns:x='urn:x'><x:b x=1/>");
+		} catch(RuntimeException e) {
+			// expected
+		}
+		stream.reset();
+		stream.feed("<c><d/></c>");
+		stream.endOfInput();
+		assertEquals(1, collector.elements.size());
+		assertEquals(SNAX.parse("<c><d/></c>").rootElement(), collector.elements.get(0));
+	}
+
+	private static String join() {
+		StringBuilder sb = new StringBuilder();
+		for(String message : MESSAGES) {
+			sb.append(message);
+		}
+		return sb.toString();
+	}
+
+	private static List<Element> expected() {
+		List<Element> expected = new ArrayList<Element>();
+		for(String message : MESSAGES) {
+			for(Element e : SNAX.parse(message).childElements()) {
+				expected.add(e);
+			}
+		}
+		return expected;
+	}
+
+	private static class Collector implements ElementStream.Listener {
+
+		final List<Element> elements = new ArrayList<Element>();
+
+		@Override
+		public void element(Element element) {
+			elements.add(element);
+		}
+	}
+}
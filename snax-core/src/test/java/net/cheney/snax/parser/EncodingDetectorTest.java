@@ -0,0 +1,56 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class EncodingDetectorTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testByteOrderMarks() {
+		assertDetected("UTF-8", 3, new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF, '<', 'a', '/', '>' });
+		assertDetected("UTF-16BE", 2, new byte[] { (byte) 0xFE, (byte) 0xFF, 0, '<', 0, 'a' });
+		assertDetected("UTF-16LE", 2, new byte[] { (byte) 0xFF, (byte) 0xFE, '<', 0, 'a', 0 });
+	}
+
+	@Test public void testUTF16WithoutByteOrderMark() {
+		assertDetected("UTF-16BE", 0, new byte[] { 0, '<', 0, 'a' });
+		assertDetected("UTF-16LE", 0, new byte[] { '<', 0, 'a', 0 });
+	}
+
+	@Test public void testDeclaration() {
+		assertDetected("ISO-8859-1", 0, "<?xml version='1.0' encoding='ISO-8859-1'?><a/>".getBytes(UTF_8));
+		assertDetected("windows-1252", 0, "<?xml version=\"1.0\"\n\tencoding = \"windows-1252\" standalone='yes'?><a/>".getBytes(UTF_8));
+		assertDetected("UTF-8", 0, "<?xml version='1.0'?><a encoding='ISO-8859-1'/>".getBytes(UTF_8));
+		assertDetected("UTF-8", 0, "<?xml-stylesheet encoding='ISO-8859-1'?><a/>".getBytes(UTF_8));
+		assertDetected("UTF-8", 0, "<a/>".getBytes(UTF_8));
+		assertDetected("UTF-8", 0, new byte[0]);
+	}
+
+	@Test public void testPositionIsRelative() {
+		ByteBuffer buffer = ByteBuffer.wrap("xx<?xml version='1.0' encoding='US-ASCII'?><a/>".getBytes(UTF_8));
+		buffer.position(2);
+		assertEquals(Charset.forName("US-ASCII"), EncodingDetector.detect(buffer));
+		assertEquals(2, buffer.position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedEncoding() {
+		EncodingDetector.detect(ByteBuffer.wrap("<?xml version='1.0' encoding='x-no-such-charset'?><a/>".getBytes(UTF_8)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidEncodingName() {
+		EncodingDetector.detect(ByteBuffer.wrap("<?xml version='1.0' encoding='a b'?><a/>".getBytes(UTF_8)));
+	}
+
+	private static void assertDetected(String charset, int position, byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		assertEquals(Charset.forName(charset), EncodingDetector.detect(buffer));
+		assertEquals(position, buffer.position());
+	}
+}
@@ -0,0 +1,147 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.QName;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String[] DOCUMENTS = {
+		"<a/>",
+		"<a></a>",
+		"<a x='1'><b/></a>",
+		"<?xml version='1.0'?><!DOCTYPE a [ <!ENTITY e 'x'> ] ><!-- prolog --><a y='2'><b/><c>d</c></a><!-- epilog -->",
+		"<a>text <b/> more <!-- c --> <?pi data?> text <b x='>' y=\"/>\"/> end</a>",
+		"<a><b><![CDATA[</b><b>]]]>]]></b><b><!-- <b> --></b></a>",
+		"<a> <b></b> <b><b/><b>x</b></b> </a>",
+		"<a><b/><!-- </a> <b> --><b>x</b><!-- > --></a>",
+		"<a:b xmlns:a='urn:a' xmlns='urn:default'><a:c a:d='e'/><c/><a:c><a:e/></a:c></a:b>",
+		"<a><b/><b/><b",
+		"<a><b/><b x='",
+	};
+
+	private ForkJoinPool pool;
+
+	@Before public void setUp() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@After public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test public void testSameDocumentAsXMLScanner() {
+		for(String xml : DOCUMENTS) {
+			for(int minRunLength : new int[] { 1, 8, 1000 }) {
+				assertSameDocument(xml, scan(xml), new ParallelParser(pool, minRunLength).parse(xml));
+			}
+		}
+	}
+
+	@Test public void testRootNamespacesInEveryRun() {
+		Document doc = new ParallelParser(pool, 1).parse(feed(100));
+		QName entry = QName.valueOf(Namespace.valueOf("a", "urn:atom"), "entry");
+		QName title = QName.valueOf(Namespace.valueOf("", "urn:default"), "title");
+		int entries = 0;
+		for(Element e : doc.rootElement().childElements()) {
+			assertEquals(entry, e.qname());
+			assertEquals(title, e.childElements().first().qname());
+			++entries;
+		}
+		assertEquals(100, entries);
+	}
+
+	@Test public void testResources() throws IOException {
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = new String(loadResource(name), UTF_8);
+			assertSameDocument(name, scan(xml), new ParallelParser(pool, 1).parse(xml));
+			assertSameDocument(name, scan(xml), SNAX.parseParallel(xml));
+		}
+	}
+
+	@Test public void testFileInWindows() throws IOException {
+		String xml = feed(200);
+		Document expected = scan(xml);
+		File file = createFile(xml.getBytes(UTF_8));
+		try {
+			// 64 bytes is smaller than an entry, so the rest of the file is parsed on this thread
+			for(long windowSize : new long[] { 64, 300, 1000, 1 << 20 }) {
+				FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				try {
+					assertSameDocument("window " + windowSize, expected, new ParallelParser(pool, 100).parse(channel, UTF_8, windowSize));
+				} finally {
+					channel.close();
+				}
+			}
+			assertSameDocument(xml, expected, SNAX.parseParallel(file.toPath()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = XMLParser.IllegalParseStateException.class)
+	public void testMalformedChild() {
+		new ParallelParser(pool, 1).parse("<a><b/><b><1c/></b><b/></a>");
+	}
+
+	private static String feed(int entries) {
+		StringBuilder sb = new StringBuilder("<?xml version='1.0'?>\n<a:feed xmlns:a='urn:atom' xmlns='urn:default'>\n");
+		for(int i = 0; i < entries; i++) {
+			sb.append("  <a:entry a:id='").append(i).append("'><title>\u00E9t\u00E9 \uD834\uDD1E ").append(i).append("</title><![CDATA[<x>]]></a:entry>\n");
+		}
+		return sb.append("</a:feed>\n").toString();
+	}
+
+	// processing instructions are only equal to themselves, so compare the documents as written
+	private static void assertSameDocument(String message, Document expected, Document actual) {
+		assertEquals(message, XMLWriter.write(expected), XMLWriter.write(actual));
+	}
+
+	private static Document scan(String xml) {
+		XMLScanner scanner = new XMLScanner();
+		scanner.parse(xml);
+		return scanner.document();
+	}
+
+	private File createFile(byte[] bytes) throws IOException {
+		File file = File.createTempFile("snax", ".xml");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = ParallelParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ParseHandlerTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testEvents() {
+		Recorder recorder = new Recorder();
+		SNAX.parse("<?pi data?><a x='1' y=\"2\">foo<b/><![CDATA[<bar>]]></a>", recorder);
+		assertEquals("[pi:pi data, start:a, name:x, value:1, name:y, value:2, attributes, text:foo, start:b, attributes, end, text:<bar>, end]", recorder.events.toString());
+	}
+
+	@Test public void testComments() {
+		String xml = "<!-- a > b --><a>x<!----><!-- c --- --></a><!-- end -->";
+		String expected = "[comment: a > b , start:a, attributes, text:x, comment:, comment: c --- , end, comment: end ]";
+		Recorder recorder = new Recorder();
+		SNAX.parse(xml, recorder);
+		assertEquals(expected, recorder.events.toString());
+		recorder = new Recorder();
+		XMLParser parser = new XMLParser(recorder, UTF_8);
+		byte[] bytes = xml.getBytes(UTF_8);
+		for (int i = 0; i < bytes.length; i += 2) {
+			parser.feed(ByteBuffer.wrap(bytes, i, Math.min(2, bytes.length - i)));
+		}
+		parser.endOfInput();
+		assertEquals(expected, recorder.events.toString());
+		assertEquals("<a>x</a>", XMLWriter.write(SNAX.parse(xml)));
+	}
+
+	@Test public void testViewsOfStringInputAreTheInput() {
+		final String xml = "<a x='1'>foo</a>";
+		SNAX.parse(xml, new DefaultParseHandler() {
+			@Override
+			public void startElement(CharSequence seq, int offset, int length) {
+				assertSame(xml, seq);
+				assertEquals(1, offset);
+				assertEquals(1, length);
+			}
+
+			@Override
+			public void characters(CharSequence seq, int offset, int length) {
+				assertSame(xml, seq);
+				assertEquals("foo", seq.subSequence(offset, offset + length));
+			}
+		});
+	}
+
+	@Test public void testCountElementsWithoutBuildingATree() throws IOException {
+		byte[] xml = loadResource("xmlconf.xml");
+		Document doc = SNAX.parse(ByteBuffer.wrap(xml), UTF_8);
+		Counter counter = new Counter();
+		SNAX.parse(ByteBuffer.wrap(xml), UTF_8, counter);
+		assertEquals(count(doc.rootElement()), counter.elements);
+	}
+
+	@Test public void testByteInputInSmallChunksMatchesStringInput() {
+		String xml = "<caf\u00E9 na\u00EFve='\u00FCber'>cr\u00E8me<b>\u65E5\u672C</b></caf\u00E9>";
+		Recorder expected = new Recorder();
+		SNAX.parse(xml, expected);
+		Recorder recorder = new Recorder();
+		XMLParser parser = new XMLParser(recorder, UTF_8);
+		byte[] bytes = xml.getBytes(UTF_8);
+		for (int i = 0; i < bytes.length; i += 3) {
+			parser.feed(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)));
+		}
+		parser.endOfInput();
+		assertEquals(expected.events, recorder.events);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoDocument() {
+		XMLParser parser = new XMLParser(new Counter());
+		parser.parse("<a/>");
+		parser.document();
+	}
+
+	private int count(Element element) {
+		int count = 1;
+		for (Element child : element.childElements()) {
+			count += count(child);
+		}
+		return count;
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = ParseHandlerTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	private static class Counter extends DefaultParseHandler {
+
+		int elements;
+
+		@Override
+		public void startElement(CharSequence seq, int offset, int length) {
+			++elements;
+		}
+	}
+
+	private static class Recorder implements ParseHandler {
+
+		final List<String> events = new ArrayList<String>();
+
+		private void record(String event, CharSequence seq, int offset, int length) {
+			events.add(event + ":" + seq.subSequence(offset, offset + length));
+		}
+
+		@Override
+		public void startElement(CharSequence seq, int offset, int length) {
+			record("start", seq, offset, length);
+		}
+
+		@Override
+		public void attributeName(CharSequence seq, int offset, int length) {
+			record("name", seq, offset, length);
+		}
+
+		@Override
+		public void attributeValue(CharSequence seq, int offset, int length) {
+			record("value", seq, offset, length);
+		}
+
+		@Override
+		public void endAttributes() {
+			events.add("attributes");
+		}
+
+		@Override
+		public void endElement() {
+			events.add("end");
+		}
+
+		@Override
+		public void characters(CharSequence seq, int offset, int length) {
+			record("text", seq, offset, length);
+		}
+
+		@Override
+		public void comment(CharSequence seq, int offset, int length) {
+			record("comment", seq, offset, length);
+		}
+
+		@Override
+		public void processingInstruction(CharSequence seq, int offset, int length) {
+			record("pi", seq, offset, length);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.BuilderStack;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ParserPoolTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String[] DOCUMENTS = {
+		"<a/>",
+		"<a x='1'><b/>text<!-- c --><b><c>d</c></b></a>",
+		"<?xml version='1.0'?><!DOCTYPE a [ <!ENTITY e 'x'> ] ><a y='2'><b><c><d><e/></d></c></b><?pi data?></a>",
+		"<a:b xmlns:a='urn:a' xmlns='urn:default'><a:c a:d='e'/><c/><a:c xmlns:a='urn:other'><a:e/></a:c></a:b>",
+		"<a><b><![CDATA[</b>]]></b></a>",
+	};
+
+	@Test public void testEarlierDocumentsAreUnchanged() {
+		ParserPool pool = new ParserPool();
+		List<Document> parsed = new ArrayList<Document>();
+		for(int i = 0; i < 3; ++i) {
+			for(String xml : DOCUMENTS) {
+				parsed.add(pool.parse(xml));
+			}
+		}
+		for(int i = 0; i < parsed.size(); ++i) {
+			String xml = DOCUMENTS[i % DOCUMENTS.length];
+			assertSameDocument(xml, SNAX.parse(xml), parsed.get(i));
+		}
+	}
+
+	@Test public void testBytes() throws IOException {
+		ParserPool pool = new ParserPool();
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			Document expected = SNAX.parse(xml);
+			assertSameDocument(name, expected, pool.parse(ByteBuffer.wrap(xml.getBytes(UTF_8)), UTF_8));
+			assertSameDocument(name, expected, pool.parse(xml));
+			Charset utf16 = Charset.forName("UTF-16");
+			assertSameDocument(name, expected, pool.parse(ByteBuffer.wrap(xml.getBytes(utf16)), utf16));
+		}
+	}
+
+	@Test public void testDetectedEncodings() throws IOException {
+		ParserPool pool = new ParserPool();
+		String xml = loadResource("namespace.xml");
+		String latin = "<?xml version='1.0' encoding='ISO-8859-1'?><a b='\u00E9'>caf\u00E9</a>";
+		String windows = "<?xml version=\"1.0\" encoding=\"windows-1252\"?><a>\u20AC</a>";
+		for(int i = 0; i < 2; ++i) {
+			assertSameDocument("UTF-8", SNAX.parse(xml), pool.parse(bytes("\uFEFF" + xml, UTF_8)));
+			assertSameDocument("UTF-16", SNAX.parse(xml), pool.parse(bytes(xml, Charset.forName("UTF-16"))));
+			assertSameDocument("UTF-16LE", SNAX.parse(xml), pool.parse(bytes(xml, Charset.forName("UTF-16LE"))));
+			assertSameDocument("ISO-8859-1", SNAX.parse(latin), pool.parse(bytes(latin, Charset.forName("ISO-8859-1"))));
+			assertSameDocument("windows-1252", SNAX.parse(windows), pool.parse(bytes(windows, Charset.forName("windows-1252"))));
+			assertSameDocument("UTF-16BE", SNAX.parse(DOCUMENTS[1]), pool.parse(bytes(DOCUMENTS[1], Charset.forName("UTF-16BE"))));
+		}
+		assertEquals("caf\u00E9", SNAX.parse(bytes(latin, Charset.forName("ISO-8859-1"))).rootElement().text());
+	}
+
+	@Test public void testAfterAFailedParse() {
+		ParserPool pool = new ParserPool();
+		try {
+			pool.parse("<a><b></c></a>");
+		} catch(RuntimeException e) {
+			// expected
+		}
+		assertSameDocument("", SNAX.parse(DOCUMENTS[1]), pool.parse(DOCUMENTS[1]));
+	}
+
+	@Test public void testNothingIsCarriedFromAFailedParse() {
+		String malformed = "<a><secret>pw</secret><c x='1' <", valid = "<r><z/></r>";
+		for(String charset : new String[] { "UTF-8", "UTF-16BE" }) {
+			Charset cs = Charset.forName(charset);
+			ParserPool pool = new ParserPool();
+			try {
+				pool.parse(bytes(malformed, cs), cs);
+			} catch(RuntimeException e) {
+				// expected
+			}
+			assertEquals(charset, "<r><z/></r>", XMLWriter.write(pool.parse(bytes(valid, cs), cs)));
+		}
+		ParserPool pool = new ParserPool();
+		try {
+			pool.parse(malformed);
+		} catch(RuntimeException e) {
+			// expected
+		}
+		assertEquals("<r><z/></r>", XMLWriter.write(pool.parse(valid)));
+	}
+
+	@Test public void testLargeBuffersAreReleased() {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 20000; ++i) {
+			text.append("text ");
+		}
+		String large = "<a><b>" + text + "</b><c x='" + text + "'/></a>";
+		ParserPool pool = new ParserPool(1024);
+		for(String charset : new String[] { "UTF-8", "UTF-16" }) {
+			Charset cs = Charset.forName(charset);
+			assertSameDocument(charset, SNAX.parse(large), pool.parse(bytes(large, cs), cs));
+			// none of the five buffers holds more than 1024 chars or bytes
+			assertTrue(charset, pool.retained() <= 5 * 1024);
+		}
+		assertSameDocument("", SNAX.parse(large), pool.parse(large));
+		assertTrue(pool.retained() <= 5 * 1024);
+		pool.parse(DOCUMENTS[2]);
+		int retained = pool.retained();
+		assertTrue(retained >= DOCUMENTS[2].length());
+		assertSameDocument("", SNAX.parse(DOCUMENTS[2]), pool.parse(DOCUMENTS[2]));
+		assertEquals(retained, pool.retained());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeMaxRetained() {
+		new ParserPool(-1);
+	}
+
+	@Test public void testThreads() throws Exception {
+		final ParserPool pool = new ParserPool();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for(int i = 0; i < 200; ++i) {
+				final String xml = DOCUMENTS[i % DOCUMENTS.length];
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() {
+						return XMLWriter.write(pool.parse(xml));
+					}
+				}));
+			}
+			for(int i = 0; i < results.size(); ++i) {
+				assertEquals(XMLWriter.write(SNAX.parse(DOCUMENTS[i % DOCUMENTS.length])), results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test public void testLazyDocumentsFromAStack() {
+		BuilderHandler handler = new BuilderHandler(new BuilderStack());
+		List<Document> parsed = new ArrayList<Document>();
+		for(String xml : DOCUMENTS) {
+			handler.reset();
+			new XMLScanner(handler, 1).parse(xml);
+			parsed.add(handler.document());
+		}
+		for(int i = 0; i < DOCUMENTS.length; ++i) {
+			assertSameDocument(DOCUMENTS[i], SNAX.parse(DOCUMENTS[i]), parsed.get(i));
+		}
+	}
+
+	@Test public void testParserReset() {
+		XMLParser parser = new XMLParser();
+		parser.parse("<a><b x='");
+		parser.reset();
+		parser.parse(DOCUMENTS[3]);
+		parser.endOfInput();
+		assertSameDocument("", SNAX.parse(DOCUMENTS[3]), parser.document());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testResetOfSuppliedBuilder() {
+		new BuilderHandler(Document.builder()).reset();
+	}
+
+	private static void assertSameDocument(String message, Document expected, Document actual) {
+		assertEquals(message, XMLWriter.write(expected), XMLWriter.write(actual));
+	}
+
+	private static ByteBuffer bytes(String xml, Charset charset) {
+		return ByteBuffer.wrap(xml.getBytes(charset));
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = ParserPoolTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is, UTF_8.name());
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
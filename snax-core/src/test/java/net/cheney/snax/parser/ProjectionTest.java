@@ -0,0 +1,91 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Document;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.QName;
+import net.cheney.snax.model.Text;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ProjectionTest {
+
+	private static final String ORDER = "<?xml version='1.0'?><order status='open'>"
+		+ "<id>42</id>"
+		+ "<customer><name>A <b>bold</b> name</name><address><![CDATA[<street/>]]></address></customer>"
+		+ "<!-- a comment -->"
+		+ "<lines count='2'>"
+		+ "<line sku='A' qty='1'><note x='>' y=\"/>\">skipped</note></line>"
+		+ "<line qty='3' sku='B'/>"
+		+ "</lines>"
+		+ "<?pi data?>"
+		+ "</order>";
+
+	@Test public void testOnlyPathsAreBuilt() {
+		Document doc = SNAX.parse(ORDER, new Projection("order/id", "order/lines/line/@sku"));
+		Element expected = new Element("order",
+			new Element("id", new Text("42")),
+			new Element("lines",
+				new Element("line", new Attribute("sku", "A")),
+				new Element("line", new Attribute("sku", "B"))));
+		assertEquals(expected, doc.rootElement());
+	}
+
+	@Test public void testWholeElement() {
+		Document doc = SNAX.parse(ORDER, new Projection("order/customer", "order/@status"));
+		Element customer = SNAX.parse(ORDER).rootElement().getChildren(QName.valueOf("customer")).first();
+		assertEquals(new Element("order", new Attribute("status", "open"), customer), doc.rootElement());
+	}
+
+	@Test public void testNamespaceDeclarationsAreKept() {
+		String xml = "<o:order xmlns:o='urn:o' xmlns='urn:default' o:x='1'><o:id>1</o:id><other/></o:order>";
+		Element root = SNAX.parse(xml, new Projection("o:order/o:id")).rootElement();
+		Namespace o = Namespace.valueOf("o", "urn:o");
+		assertEquals(QName.valueOf(o, "order"), root.qname());
+		assertFalse(root.attributes().any());
+		assertEquals(QName.valueOf(o, "id"), root.childElements().first().qname());
+	}
+
+	@Test public void testRootNotOnAPath() {
+		Document doc = SNAX.parse(ORDER, new Projection("invoice/id"));
+		assertFalse(doc.childElements().any());
+	}
+
+	@Test public void testRootPathBuildsEverything() throws IOException {
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			Element expected = SNAX.parse(xml).rootElement();
+			String root = expected.prefix().isEmpty() ? expected.localpart() : expected.prefix() + ":" + expected.localpart();
+			assertEquals(name, expected, SNAX.parse(xml, new Projection(root)).rootElement());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyStep() {
+		new Projection("order//id");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAttributeBeforeLastStep() {
+		new Projection("order/@id/line");
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = ProjectionTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is, Charset.forName("UTF-8").name());
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Document;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class PushParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset UTF_16 = Charset.forName("UTF-16");
+	
+	private static final String XML = "<feed xmlns:a='urn:a'><a:entry id='1' title=\"d\u00E9j\u00E0 vu\">\u65E5\u672C\u8A9E<![CDATA[x]]y]]></a:entry><!-- c --><entry id='2'/></feed>";
+
+	@Test public void testFeedCharsOneAtATime() {
+		XMLParser parser = new XMLParser();
+		for (int i = 0; i < XML.length(); i++) {
+			parser.feed(CharBuffer.wrap(XML, i, i + 1));
+		}
+		parser.endOfInput();
+		assertEquals(SNAX.parse(XML).rootElement(), parser.document().rootElement());
+	}
+
+	@Test public void testFeedBytesOneAtATime() {
+		byte[] bytes = XML.getBytes(UTF_8);
+		XMLParser parser = new XMLParser(UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			parser.feed(ByteBuffer.wrap(bytes, i, 1));
+		}
+		parser.endOfInput();
+		assertEquals(SNAX.parse(XML).rootElement(), parser.document().rootElement());
+	}
+
+	@Test public void testFeedDecodedCharsetOneAtATime() {
+		byte[] bytes = XML.getBytes(UTF_16);
+		XMLParser parser = new XMLParser(UTF_16);
+		for (int i = 0; i < bytes.length; i++) {
+			parser.feed(ByteBuffer.wrap(bytes, i, 1));
+		}
+		parser.endOfInput();
+		assertEquals(SNAX.parse(XML).rootElement(), parser.document().rootElement());
+	}
+
+	@Test public void testFeedRandomChunks() throws IOException {
+		Random r = new Random(201010180000L);
+		for (String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			byte[] bytes = loadResource(name);
+			Document expected = SNAX.parse(UTF_8.decode(ByteBuffer.wrap(bytes)));
+			XMLParser parser = new XMLParser(UTF_8);
+			for (int offset = 0, length; offset < bytes.length; offset += length) {
+				length = Math.min(1 + r.nextInt(64), bytes.length - offset);
+				parser.feed(ByteBuffer.wrap(bytes, offset, length));
+			}
+			parser.endOfInput();
+			assertEquals(name, expected.rootElement(), parser.document().rootElement());
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEndOfInputInsideElement() {
+		XMLParser parser = new XMLParser();
+		parser.feed(CharBuffer.wrap("<feed><entry>"));
+		parser.endOfInput();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEndOfInputInsideName() {
+		XMLParser parser = new XMLParser();
+		parser.feed(CharBuffer.wrap("<feed/><fe"));
+		parser.endOfInput();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEndOfInputWithoutRootElement() {
+		XMLParser parser = new XMLParser();
+		parser.feed(CharBuffer.wrap("<?xml version='1.0'?>"));
+		parser.endOfInput();
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = PushParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
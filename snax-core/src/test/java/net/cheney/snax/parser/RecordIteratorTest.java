@@ -0,0 +1,88 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.model.Attribute;
+import net.cheney.snax.model.Element;
+import net.cheney.snax.model.Namespace;
+import net.cheney.snax.model.QName;
+import net.cheney.snax.model.Text;
+
+import org.junit.Test;
+
+public class RecordIteratorTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testRecordsAtPath() {
+		String xml = "<feed><title>t</title><entry id='1'><entry>nested</entry></entry><meta><entry id='x'/></meta><entry id='2'/></feed>";
+		List<Element> records = records(SNAX.stream(xml, "/feed/entry"));
+		assertEquals(2, records.size());
+		assertEquals(new Element("entry", new Attribute("id", "1"), new Element("entry", new Text("nested"))), records.get(0));
+		assertEquals("2", records.get(1).attributes().first().value());
+	}
+
+	@Test public void testWildcard() {
+		String xml = "<feed><a><entry/></a><b><entry/><other/></b></feed>";
+		assertEquals(2, records(SNAX.stream(xml, "/feed/*/entry")).size());
+		assertEquals(1, records(SNAX.stream(xml, "/*")).size());
+	}
+
+	@Test public void testAncestorNamespacesInScope() {
+		String xml = "<a:feed xmlns:a='urn:a' xmlns='urn:default'><a:entry><title/></a:entry><a:entry xmlns:a='urn:other'/></a:feed>";
+		List<Element> records = records(SNAX.stream(xml, "/a:feed/a:entry"));
+		assertEquals(2, records.size());
+		assertEquals(QName.valueOf(Namespace.valueOf("a", "urn:a"), "entry"), records.get(0).qname());
+		assertEquals(QName.valueOf(Namespace.valueOf("", "urn:default"), "title"), records.get(0).childElements().first().qname());
+		assertEquals(QName.valueOf(Namespace.valueOf("a", "urn:other"), "entry"), records.get(1).qname());
+	}
+
+	@Test public void testSameRecordsAsParse() {
+		StringBuilder sb = new StringBuilder("<feed xmlns:x='urn:x'>");
+		for(int i = 0; i < 5000; i++) {
+			sb.append("<x:entry n='").append(i).append("'>\u00E9t\u00E9 \uD834\uDD1E ").append(i).append("<![CDATA[<x>]]><!-- c --></x:entry>\n");
+		}
+		String xml = sb.append("</feed>").toString();
+		List<Element> expected = new ArrayList<Element>();
+		for(Element e : SNAX.parse(xml).rootElement().childElements()) {
+			expected.add(e);
+		}
+		assertEquals(expected, records(SNAX.stream(xml, "/feed/x:entry")));
+		assertEquals(expected, records(SNAX.stream(new ByteArrayInputStream(xml.getBytes(UTF_8)), UTF_8, "/feed/x:entry")));
+	}
+
+	@Test public void testNoRecords() {
+		RecordIterator records = SNAX.stream("<feed><other/></feed>", "/feed/entry");
+		assertFalse(records.hasNext());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompleteDocument() {
+		records(SNAX.stream("<feed><entry/><entry>", "/feed/entry"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRelativePath() {
+		SNAX.stream("<feed/>", "feed/entry");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyStep() {
+		SNAX.stream("<feed/>", "/feed//entry");
+	}
+
+	private static List<Element> records(RecordIterator iterator) {
+		List<Element> records = new ArrayList<Element>();
+		while(iterator.hasNext()) {
+			records.add(iterator.next());
+		}
+		return records;
+	}
+}
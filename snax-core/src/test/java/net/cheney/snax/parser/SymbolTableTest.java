@@ -0,0 +1,87 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+
+import net.cheney.snax.model.Element;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+
+	@Test public void testSameNameSameString() {
+		SymbolTable symbols = new SymbolTable();
+		String first = symbols.symbol("<foo><foo/></foo>", 1, 3);
+		assertEquals("foo", first);
+		assertSame(first, symbols.symbol("<foo><foo/></foo>", 6, 3));
+		assertSame(first, symbols.symbol(CharBuffer.wrap("xfoo"), 1, 3));
+		assertSame(first, symbols.symbol("xxfoo".toCharArray(), 2, 3));
+		assertEquals("fo", symbols.symbol("foo", 0, 2));
+		assertEquals(2, symbols.size());
+	}
+
+	@Test public void testBounded() {
+		SymbolTable symbols = new SymbolTable(16);
+		for (int i = 0; i < 10000; ++i) {
+			String name = "name" + i;
+			assertEquals(name, symbols.symbol(name, 0, name.length()));
+		}
+		assertEquals(16, symbols.capacity());
+		assertTrue(symbols.size() <= 16);
+	}
+
+	@Test public void testFirstAddedNameIsReplaced() {
+		// four slots, so every name hashes to the same neighbourhood
+		SymbolTable symbols = new SymbolTable(4);
+		String[] kept = new String[4];
+		for (int i = 0; i < kept.length; ++i) {
+			kept[i] = symbols.symbol("xabcd", i + 1, 1);
+		}
+		symbols.symbol("xe".toCharArray(), 1, 1);
+		for (int i = 1; i < kept.length; ++i) {
+			assertSame(kept[i], symbols.symbol("xabcd", i + 1, 1));
+		}
+		String a = symbols.symbol("xa", 1, 1);
+		assertNotSame(kept[0], a);
+		assertEquals("a", a);
+		assertSame(kept[2], symbols.symbol("xc", 1, 1));
+		assertNotSame(kept[1], symbols.symbol("xb", 1, 1));
+	}
+
+	@Test public void testLongNamesAreNotKept() {
+		SymbolTable symbols = new SymbolTable();
+		StringBuilder name = new StringBuilder();
+		while (name.length() <= SymbolTable.MAX_SYMBOL_LENGTH) {
+			name.append("long");
+		}
+		String first = symbols.symbol(name, 0, name.length());
+		assertEquals(name.toString(), first);
+		assertNotSame(first, symbols.symbol(name, 0, name.length()));
+		assertEquals(0, symbols.size());
+	}
+
+	@Test public void testCapacityRoundedUp() {
+		assertEquals(8, new SymbolTable(5).capacity());
+		assertEquals(1, new SymbolTable(1).capacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new SymbolTable(0);
+	}
+
+	@Test public void testSharedBetweenParsers() {
+		SymbolTable symbols = new SymbolTable();
+		XMLParser first = new XMLParser(new BuilderHandler(symbols));
+		first.parse("<root><item/></root>");
+		XMLParser second = new XMLParser(new BuilderHandler(symbols));
+		second.parse("<root><item/></root>");
+		Element a = first.document().rootElement().childElements().first();
+		Element b = second.document().rootElement().childElements().first();
+		assertSame(a.localpart(), b.localpart());
+	}
+}
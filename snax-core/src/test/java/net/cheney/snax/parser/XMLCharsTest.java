@@ -0,0 +1,61 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class XMLCharsTest {
+
+	@Test public void testEveryCharMatchesTheRanges() {
+		for(int i = 0 ; i <= Character.MAX_VALUE ; ++i) {
+			final char c = (char) i;
+			assertEquals(Integer.toHexString(i), isNameStartChar(c), XMLChars.isNameStartChar(c));
+			assertEquals(Integer.toHexString(i), isNameChar(c), XMLChars.isNameChar(c));
+			assertEquals(Integer.toHexString(i), isChar(c), XMLChars.isChar(c));
+		}
+	}
+
+	@Test public void testLastChar() {
+		assertFalse(XMLChars.isChar('\uFFFF'));
+		assertTrue(XMLChars.isChar('\uFFFD'));
+		assertTrue(XMLChars.isNameStartChar('\uFFFD'));
+	}
+
+	@Test public void testCharClassRanges() {
+		XMLChars.CharClass digits = new XMLChars.CharClass('0', '9', '\u0100', '\u02FF');
+		assertTrue(digits.contains('5'));
+		assertFalse(digits.contains('a'));
+		assertTrue(digits.contains('\u0100'));
+		assertTrue(digits.contains('\u02FF'));
+		assertFalse(digits.contains('\u0300'));
+		assertTrue(new XMLChars.CharClass(digits, 'a', 'a').contains('a'));
+	}
+
+	private static boolean isNameStartChar(char c) {
+		return (c == ':' || (c >= 'A' && c <= 'Z') || c == '_'
+				|| (c >= 'a' && c <= 'z')
+				|| (c >= '\u00C0' && c <= '\u00D6')
+				|| (c >= '\u00D8' && c <= '\u00F6')
+				|| (c >= '\u00F8' && c <= '\u02FF')
+				|| (c >= '\u0370' && c <= '\u037D')
+				|| (c >= '\u037F' && c <= '\u1FFF')
+				|| (c >= '\u200C' && c <= '\u200D')
+				|| (c >= '\u2070' && c <= '\u218F')
+				|| (c >= '\u2C00' && c <= '\u2FEF')
+				|| (c >= '\u3001' && c <= '\uD7FF')
+				|| (c >= '\uF900' && c <= '\uFDCF') || (c >= '\uFDF0' && c <= '\uFFFD'));
+	}
+
+	private static boolean isNameChar(char c) {
+		return (isNameStartChar(c) || c == '-' || c == '.'
+				|| (c >= '0' && c <= '9') || c == '\u00B7'
+				|| (c >= '\u0300' && c <= '\u036F') || (c >= '\u023F' && c <= '\u2040'));
+	}
+
+	private static boolean isChar(char c) {
+		return (c == '\t' || c == '\r' || c == '\n'
+				|| (c >= ' ' && c <= '\uD7FF') || (c >= '\uE000' && c <= '\uFFFD'));
+	}
+}
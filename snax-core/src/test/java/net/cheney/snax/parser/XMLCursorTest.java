@@ -0,0 +1,140 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.cheney.snax.parser.XMLCursor.Event;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class XMLCursorTest {
+
+	@Test public void testEvents() {
+		XMLCursor cursor = new XMLCursor("<?xml version='1.0'?><feed><entry id='1' lang=\"en\">hello</entry><empty/><![CDATA[<raw>]]></feed>");
+		assertEquals(Event.PROCESSING_INSTRUCTION, cursor.next());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals("feed", cursor.name());
+		assertEquals(0, cursor.attributeCount());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertTrue(cursor.nameEquals("entry"));
+		assertEquals(2, cursor.attributeCount());
+		assertEquals("id", cursor.attributeName(0));
+		assertEquals("1", cursor.attributeValue(0));
+		assertEquals("en", cursor.attributeValue("lang"));
+		assertNull(cursor.attributeValue("missing"));
+		assertEquals(Event.TEXT, cursor.next());
+		assertEquals("hello", cursor.text());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals("entry", cursor.name());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals("empty", cursor.name());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals("empty", cursor.name());
+		assertEquals(Event.TEXT, cursor.next());
+		assertEquals("<raw>", cursor.text());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals("feed", cursor.name());
+		assertTrue(cursor.hasNext());
+		assertEquals(Event.END_DOCUMENT, cursor.next());
+		assertFalse(cursor.hasNext());
+	}
+
+	@Test public void testComments() {
+		String xml = "<!-- prolog --><a><!-- in <b/> content -->text<!---->more</a><!-- end -->";
+		XMLCursor cursor = new XMLCursor(xml);
+		assertEquals(Event.COMMENT, cursor.next());
+		assertEquals(" prolog ", cursor.text());
+		assertEquals(4, cursor.offset());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals("a", cursor.name());
+		assertEquals(Event.COMMENT, cursor.next());
+		assertEquals(" in <b/> content ", cursor.text());
+		assertEquals(Event.TEXT, cursor.next());
+		assertEquals("text", cursor.text());
+		assertEquals(Event.COMMENT, cursor.next());
+		assertEquals("", cursor.text());
+		assertEquals(Event.TEXT, cursor.next());
+		assertEquals("more", cursor.text());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals("a", cursor.name());
+		assertEquals(Event.COMMENT, cursor.next());
+		assertEquals(" end ", cursor.text());
+		assertEquals(xml.lastIndexOf(" end "), cursor.offset());
+		assertEquals(Event.END_DOCUMENT, cursor.next());
+	}
+
+	@Test public void testReset() {
+		XMLCursor cursor = new XMLCursor("<a x='1'/>");
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		cursor.reset("<b><c/></b>");
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals("b", cursor.name());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals("c", cursor.name());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals("b", cursor.name());
+		assertEquals(Event.END_DOCUMENT, cursor.next());
+	}
+
+	@Test public void testSkipsWhitespace() {
+		XMLCursor cursor = new XMLCursor("<a>\n  <b/>\n</a>\n");
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals(Event.START_ELEMENT, cursor.next());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals(Event.END_ELEMENT, cursor.next());
+		assertEquals(Event.END_DOCUMENT, cursor.next());
+	}
+
+	@Test public void testBalancedEvents() throws IOException {
+		XMLCursor cursor = new XMLCursor();
+		for (String name : new String[] { "oasis.xml", "xmlconf.xml", "namespace.xml" }) {
+			cursor.reset(loadResource(name));
+			int starts = 0, ends = 0;
+			while (cursor.hasNext()) {
+				switch (cursor.next()) {
+				case START_ELEMENT:
+					++starts;
+					break;
+				case END_ELEMENT:
+					++ends;
+					break;
+				default:
+				}
+			}
+			assertTrue(name, starts > 0);
+			assertEquals(name, starts, ends);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompleteDocument() {
+		XMLCursor cursor = new XMLCursor("<a><b>");
+		while (cursor.hasNext()) {
+			cursor.next();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNoAttributesOnText() {
+		XMLCursor cursor = new XMLCursor("<a>text</a>");
+		cursor.next();
+		cursor.next();
+		cursor.attributeCount();
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = XMLCursorTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package net.cheney.snax.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.cheney.snax.SNAX;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * {@link XMLScanner} must report the same events and throw the same exceptions as {@link XMLParser}.
+ */
+public class XMLScannerTest {
+
+	private static final String[] DOCUMENTS = {
+		"<a/>",
+		"<a></a>",
+		"<a x='1' y=\"2\"/>",
+		"<a x = '1'y='2' >text</a >",
+		"<a\tx\n=\r'1'/>",
+		"<?xml version='1.0'?><!DOCTYPE a [ <!ENTITY e 'x'> ] ><a><!-- a comment --><b>c</b></a>",
+		"<a><![CDATA[<b>]]></a>",
+		"<a><![CDATA[]]></a>",
+		"<a><![CDATA[foo()] ]] ]]></a>",
+		"<a><![CDATA[x]]]>y]]></a>",
+		"<a>  <b/>\n  </a>  trailing",
+		"<a><?pi some data?></a>",
+		"<a:b xmlns:a='urn:a'><a:c a:d='e'/></a:b>",
+		"<a>\u00E9\u65E5\uD834\uDD1E</a>",
+		"<!-- a > b --><a>x<!-- <b/> -->y<!---->z<!-- c --- -->w</a>",
+		// malformed
+		"<a / >",
+		"<1a/>",
+		"<a b='1' c/>",
+		"<a b 'c'/>",
+		"<a b=c/>",
+		"<a b='\u0001'/>",
+		"<a></1a>",
+		"<a></a b>",
+		"<a></a$>",
+		"<a$/>",
+		"<a !/>",
+		"<!$>",
+		"<!-$ -->",
+		"<!DOCTYPE a \u0001>",
+		"<!DOCTYPE a [ ] x>",
+		"<?$?>",
+		"<?pi$?>",
+		"<?pi data\u0001?>",
+		"<?pi data?x",
+		"<a/x",
+		"text<a/>",
+	};
+
+	@Test public void testSameEventsAsXMLParser() {
+		for(String xml : DOCUMENTS) {
+			assertSameEvents(xml);
+		}
+	}
+
+	@Test public void testTruncatedDocumentsReportTheSameEvents() {
+		for(String xml : DOCUMENTS) {
+			for(int i = 0; i < xml.length(); ++i) {
+				assertSameEvents(xml.substring(0, i));
+			}
+		}
+	}
+
+	@Test public void testResources() throws IOException {
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml", "xmltest.xml", "time.xml", "errata4e.xml" }) {
+			assertSameEvents(loadResource(name));
+		}
+	}
+
+	@Test public void testCharBufferViews() {
+		CharBuffer buffer = CharBuffer.wrap("xx<a b='c'>d</a>");
+		buffer.position(2);
+		Recorder scanned = new Recorder();
+		new XMLScanner(scanned).parse(buffer);
+		assertEquals("[start:a, name:b, value:c, attributes, text:d, end]", scanned.events.toString());
+		assertEquals(2, buffer.position());
+	}
+
+	@Test public void testCharArrayInPlace() {
+		char[] chars = "xx<a b='c'>d</a>yy".toCharArray();
+		Recorder scanned = new Recorder();
+		new XMLScanner(scanned).parse(chars, 2, chars.length - 4);
+		assertEquals("[start:a, name:b, value:c, attributes, text:d, end]", scanned.events.toString());
+	}
+
+	@Test public void testCharArrayBuildsTheSameDocument() throws IOException {
+		for(String name : new String[] { "basic.xml", "cdata.xml", "namespace.xml", "oasis.xml", "xmlconf.xml" }) {
+			String xml = loadResource(name);
+			char[] padded = ("  " + xml + "  ").toCharArray();
+			assertEquals(name, SNAX.parse(xml).rootElement(), SNAX.parse(padded, 2, xml.length()).rootElement());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCharArrayRangeOutOfBounds() {
+		new XMLScanner().parse(new char[4], 2, 3);
+	}
+
+	@Test public void testReuse() {
+		Recorder recorder = new Recorder();
+		XMLScanner scanner = new XMLScanner(recorder);
+		scanner.parse("<longer-document><child/></longer-document>");
+		recorder.events.clear();
+		scanner.parse("<a>b</a>");
+		assertEquals("[start:a, attributes, text:b, end]", recorder.events.toString());
+	}
+
+	private void assertSameEvents(String xml) {
+		Recorder expected = new Recorder();
+		try {
+			new XMLParser(expected).parse(xml);
+		} catch(RuntimeException e) {
+			expected.events.add(e.getClass().getName() + ": " + e.getMessage());
+		}
+		Recorder actual = new Recorder();
+		try {
+			new XMLScanner(actual).parse(xml);
+		} catch(RuntimeException e) {
+			actual.events.add(e.getClass().getName() + ": " + e.getMessage());
+		}
+		assertEquals(xml, expected.events, actual.events);
+	}
+
+	private String loadResource(String name) throws IOException {
+		InputStream is = XMLScannerTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toString(is, "UTF-8");
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	private static class Recorder implements ParseHandler {
+
+		final List<String> events = new ArrayList<String>();
+
+		private void record(String event, CharSequence seq, int offset, int length) {
+			events.add(event + ":" + seq.subSequence(offset, offset + length));
+		}
+
+		@Override
+		public void startElement(CharSequence seq, int offset, int length) {
+			record("start", seq, offset, length);
+		}
+
+		@Override
+		public void attributeName(CharSequence seq, int offset, int length) {
+			record("name", seq, offset, length);
+		}
+
+		@Override
+		public void attributeValue(CharSequence seq, int offset, int length) {
+			record("value", seq, offset, length);
+		}
+
+		@Override
+		public void endAttributes() {
+			events.add("attributes");
+		}
+
+		@Override
+		public void endElement() {
+			events.add("end");
+		}
+
+		@Override
+		public void characters(CharSequence seq, int offset, int length) {
+			record("text", seq, offset, length);
+		}
+
+		@Override
+		public void comment(CharSequence seq, int offset, int length) {
+			record("comment", seq, offset, length);
+		}
+
+		@Override
+		public void processingInstruction(CharSequence seq, int offset, int length) {
+			record("pi", seq, offset, length);
+		}
+	}
+}
@@ -44,6 +44,7 @@ public class XMLTest {
 			remainder = StringUtils.substring(remainder, CHUNK_SIZE);
 		}
 		Assert.assertNotNull(parser.document());
+		Assert.assertEquals(SNAX.parse(body).rootElement(), parser.document().rootElement());
 	}
 	
 	@Test public void testXMLParserWithRandomChunk() {
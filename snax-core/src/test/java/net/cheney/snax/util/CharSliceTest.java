@@ -0,0 +1,28 @@
+package net.cheney.snax.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class CharSliceTest {
+
+	@Test public void testView() {
+		CharSlice slice = new CharSlice("<a>foo</a>", 3, 3);
+		assertEquals(3, slice.length());
+		assertEquals('o', slice.charAt(2));
+		assertEquals("oo", slice.subSequence(1, 3).toString());
+		assertEquals("foo", slice.toString());
+		assertSame(slice.toString(), slice.toString());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new CharSlice("foo", 2, 2);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCharAtOutOfBounds() {
+		new CharSlice("foobar", 1, 2).charAt(2);
+	}
+}
@@ -0,0 +1,32 @@
+package net.cheney.snax.experimental.parser;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Reads a channel through a {@link ChannelSequence} of a fixed capacity.
+ */
+public final class ChannelReader extends Reader {
+
+	private final ChannelSequence sequence;
+
+	public ChannelReader(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset) {
+		this(channel, charset, ChannelSequence.DEFAULT_CAPACITY);
+	}
+
+	public ChannelReader(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, int capacity) {
+		this.sequence = new ChannelSequence(channel, charset, capacity);
+	}
+
+	@Override
+	public boolean hasMore() {
+		return sequence.hasNext();
+	}
+
+	@Override
+	public Sequence sequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,181 @@
+package net.cheney.snax.experimental.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link Sequence} over a channel that holds a fixed number of characters in a ring buffer. 
+ * Only the characters from the {@link #mark()} on are kept, the space before it is reused as 
+ * more input is decoded, so input of any size is read with a fixed buffer as long as each token 
+ * fits. Malformed input is replaced with U+FFFD.
+ */
+public final class ChannelSequence extends Sequence {
+
+	public static final int DEFAULT_CAPACITY = 8 * 1024;
+
+	private final ReadableByteChannel channel;
+
+	private final CharsetDecoder decoder;
+
+	private final ByteBuffer bytes;
+
+	// decoded chars not yet copied into the ring, in read mode
+	private final CharBuffer decoded;
+
+	private final char[] ring;
+
+	private final int mask;
+
+	// absolute positions, the chars between mark and limit are held in ring[position & mask]
+	private long mark, position, limit;
+
+	private boolean endOfInput, flushing, flushed;
+
+	private final Window window = new Window();
+
+	public ChannelSequence(@Nonnull InputStream in, @Nonnull Charset charset) {
+		this(Channels.newChannel(in), charset, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the most characters held, rounded up to a power of two, which is the longest token read
+	 */
+	public ChannelSequence(@Nonnull ReadableByteChannel channel, @Nonnull Charset charset, int capacity) {
+		if(capacity < 16 || capacity > 1 << 30) {
+			throw new IllegalArgumentException(String.format("Capacity %d is not between 16 and %d", capacity, 1 << 30));
+		}
+		final int size = Integer.highestOneBit(capacity) < capacity ? Integer.highestOneBit(capacity) << 1 : capacity;
+		this.channel = channel;
+		this.decoder = charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.ring = new char[size];
+		this.mask = size - 1;
+		this.bytes = ByteBuffer.allocate(size);
+		this.decoded = CharBuffer.allocate(size);
+		this.decoded.flip();
+	}
+
+	@Override
+	public char next() {
+		if(!hasNext()) {
+			throw new IllegalStateException("No more characters");
+		}
+		return ring[(int) (position++ & mask)];
+	}
+
+	/**
+	 * @throws UncheckedIOException if the channel cannot be read
+	 * @throws IllegalStateException if the buffer is full of the current token
+	 */
+	@Override
+	public boolean hasNext() {
+		return position < limit || fill();
+	}
+
+	@Override
+	public void mark() {
+		mark = position;
+	}
+
+	@Override
+	public CharSequence marked() {
+		return window;
+	}
+
+	public int capacity() {
+		return ring.length;
+	}
+
+	// decode more input into the space before the mark, false if there is none
+	private boolean fill() {
+		while(position == limit) {
+			if(!decoded.hasRemaining() && !decode()) {
+				return false;
+			}
+			final int free = ring.length - (int) (limit - mark);
+			if(free == 0) {
+				throw new IllegalStateException(String.format("A token of more than %d chars does not fit the buffer", ring.length));
+			}
+			final int length = Math.min(free, decoded.remaining());
+			final int start = (int) (limit & mask);
+			final int head = Math.min(length, ring.length - start);
+			decoded.get(ring, start, head);
+			decoded.get(ring, 0, length - head);
+			limit += length;
+		}
+		return true;
+	}
+
+	// read and decode the next chars, false if the input has ended
+	private boolean decode() {
+		decoded.clear();
+		try {
+			while(decoded.position() == 0 && !flushed) {
+				if(!endOfInput && channel.read(bytes) < 0) {
+					endOfInput = true;
+				}
+				if(!flushing) {
+					bytes.flip();
+					final CoderResult result = decoder.decode(bytes, decoded, endOfInput);
+					bytes.compact();
+					if(!endOfInput || !result.isUnderflow()) {
+						continue;
+					}
+					flushing = true;
+				}
+				flushed = decoder.flush(decoded).isUnderflow();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			decoded.flip();
+		}
+		return decoded.hasRemaining();
+	}
+
+	/**
+	 * The chars from the mark to the current position.
+	 */
+	private final class Window implements CharSequence {
+
+		@Override
+		public int length() {
+			return (int) (position - mark);
+		}
+
+		@Override
+		public char charAt(int index) {
+			return ring[(int) ((mark + index) & mask)];
+		}
+
+		/**
+		 * @return a copy of the chars between start and end
+		 */
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			final char[] copy = new char[end - start];
+			final int from = (int) ((mark + start) & mask);
+			final int head = Math.min(copy.length, ring.length - from);
+			System.arraycopy(ring, from, copy, 0, head);
+			System.arraycopy(ring, 0, copy, head, copy.length - head);
+			return new String(copy);
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+}
@@ -16,7 +16,14 @@ public abstract class Sequence {
 	public abstract boolean hasNext();
 	
 	/**
-	 * Mark this position in the sequence
+	 * Mark this position in the sequence, the next character returned by {@link #next()} starts 
+	 * the current token. Characters before the mark may be discarded.
 	 */
 	public abstract void mark();
+	
+	/**
+	 * @return the characters from the mark to the current position, a view that is only valid 
+	 * until the next call to {@link #next()}, {@link #hasNext()} or {@link #mark()}
+	 */
+	public abstract CharSequence marked();
 }
@@ -0,0 +1,315 @@
+package net.cheney.snax.experimental.parser;
+
+import javax.annotation.Nonnull;
+
+import net.cheney.snax.parser.ParseHandler;
+
+/**
+ * Parses a document from a {@link Sequence} a char at a time, reporting it to a 
+ * {@link ParseHandler}. Each token is marked as it starts and reported as a view of the 
+ * sequence's marked chars, so with a {@link ChannelSequence} a document of any size is parsed 
+ * with a fixed buffer.
+ * <p>
+ * It reports the same events as {@link net.cheney.snax.parser.XMLScanner} for well formed 
+ * documents, but checks less, names and text are not checked for illegal chars. A document 
+ * that is cut short is reported up to the point it ends.
+ */
+public final class SequenceParser {
+
+	private final ParseHandler handler;
+
+	private Sequence seq;
+
+	public SequenceParser(@Nonnull ParseHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the document is malformed
+	 */
+	public void parse(@Nonnull Sequence seq) {
+		this.seq = seq;
+		try {
+			content();
+		} finally {
+			this.seq = null;
+		}
+	}
+
+	// the next char, or -1 at the end of the sequence
+	private int read() {
+		return seq.hasNext() ? seq.next() : -1;
+	}
+
+	// the next char after the whitespace, the mark is before it
+	private int skipWhitespace(int c) {
+		while(isWhitespace(c)) {
+			seq.mark();
+			c = read();
+		}
+		return c;
+	}
+
+	private void content() {
+		for( ; ; ) {
+			seq.mark();
+			int c = read();
+			while(c != '<') {
+				if(c < 0) {
+					// trailing text is never reported
+					return;
+				}
+				c = read();
+			}
+			final CharSequence text = seq.marked();
+			final int length = text.length() - 1;
+			if(!isBlank(text, length)) {
+				handler.characters(text, 0, length);
+			}
+			seq.mark();
+			c = read();
+			if(c < 0) {
+				return;
+			} else if(c == '/') {
+				endTag();
+			} else if(c == '!') {
+				declaration();
+			} else if(c == '?') {
+				processingInstruction();
+			} else if(isNameEnd(c) || c == '=') {
+				throw illegal(c, "a start tag");
+			} else {
+				startTag();
+			}
+		}
+	}
+
+	// the first char of the name has been read
+	private void startTag() {
+		int c = name();
+		if(c < 0) {
+			return;
+		}
+		final CharSequence name = seq.marked();
+		handler.startElement(name, 0, name.length() - 1);
+		for( ; ; ) {
+			c = skipWhitespace(c);
+			if(c < 0) {
+				return;
+			} else if(c == '>') {
+				handler.endAttributes();
+				return;
+			} else if(c == '/') {
+				c = read();
+				if(c < 0) {
+					return;
+				} else if(c != '>') {
+					throw illegal(c, "an empty element tag");
+				}
+				handler.endAttributes();
+				handler.endElement();
+				return;
+			} else if(c == '=') {
+				throw illegal(c, "an attribute name");
+			}
+			c = attribute();
+			if(c < 0) {
+				return;
+			}
+		}
+	}
+
+	// the first char of the attribute's name has been read, returns the char after its value with the mark before it
+	private int attribute() {
+		int c = read();
+		while(c >= 0 && c != '=' && !isWhitespace(c)) {
+			if(c == '>' || c == '/') {
+				throw illegal(c, "an attribute name");
+			}
+			c = read();
+		}
+		if(c < 0) {
+			return c;
+		}
+		final CharSequence name = seq.marked();
+		handler.attributeName(name, 0, name.length() - 1);
+		while(isWhitespace(c)) {
+			c = read();
+		}
+		if(c != '=') {
+			throw illegal(c, "an attribute");
+		}
+		do {
+			c = read();
+		} while(isWhitespace(c));
+		if(c < 0) {
+			return c;
+		} else if(c != '\'' && c != '"') {
+			throw illegal(c, "an attribute value");
+		}
+		final int quote = c;
+		seq.mark();
+		do {
+			c = read();
+			if(c < 0) {
+				return c;
+			}
+		} while(c != quote);
+		final CharSequence value = seq.marked();
+		handler.attributeValue(value, 0, value.length() - 1);
+		// no whitespace is needed before the next attribute
+		seq.mark();
+		return read();
+	}
+
+	private void endTag() {
+		seq.mark();
+		int c = name();
+		if(c < 0) {
+			return;
+		}
+		if(seq.marked().length() == 1) {
+			throw illegal(c, "an end tag");
+		}
+		while(isWhitespace(c)) {
+			c = read();
+		}
+		if(c < 0) {
+			return;
+		} else if(c != '>') {
+			throw illegal(c, "an end tag");
+		}
+		handler.endElement();
+	}
+
+	// the first char of a name has been read, returns the char after it
+	private int name() {
+		int c = read();
+		while(c >= 0 && !isNameEnd(c)) {
+			c = read();
+		}
+		return c;
+	}
+
+	// after <!, a CDATA section, a comment, or a DOCTYPE which is skipped
+	private void declaration() {
+		int c = read();
+		if(c == '[') {
+			cdata();
+			return;
+		} else if(c == '-') {
+			comment();
+			return;
+		}
+		// a DOCTYPE ends at the first > outside an internal subset
+		while(c >= 0 && c != '>') {
+			if(c == '[') {
+				do {
+					c = read();
+				} while(c >= 0 && c != ']');
+				do {
+					c = read();
+				} while(isWhitespace(c));
+				if(c >= 0 && c != '>') {
+					throw illegal(c, "a declaration");
+				}
+				return;
+			}
+			c = read();
+		}
+	}
+
+	// after <!-, a comment runs to the next -->, whatever > or [ it holds
+	private void comment() {
+		int c = read();
+		if(c < 0) {
+			return;
+		} else if(c != '-') {
+			throw illegal(c, "a comment");
+		}
+		seq.mark();
+		for(int dashes = 0 ; (c = read()) >= 0 ; ) {
+			if(c == '-') {
+				++dashes;
+			} else if(c == '>' && dashes >= 2) {
+				final CharSequence text = seq.marked();
+				handler.comment(text, 0, text.length() - 3);
+				return;
+			} else {
+				dashes = 0;
+			}
+		}
+	}
+
+	// after <![, the CDATA keyword runs to the next [
+	private void cdata() {
+		int c;
+		do {
+			c = read();
+		} while(c >= 0 && c != '[');
+		seq.mark();
+		for( ; ; ) {
+			if((c = read()) < 0) {
+				return;
+			} else if(c != ']') {
+				continue;
+			}
+			if((c = read()) < 0) {
+				return;
+			} else if(c != ']') {
+				continue;
+			}
+			// as in XMLScanner the char after ]] is consumed even if it is a ]
+			if((c = read()) < 0) {
+				return;
+			} else if(c == '>') {
+				final CharSequence text = seq.marked();
+				handler.characters(text, 0, text.length() - 3);
+				return;
+			}
+		}
+	}
+
+	private void processingInstruction() {
+		seq.mark();
+		int c = read();
+		if(c < 0) {
+			return;
+		} else if(isNameEnd(c)) {
+			throw illegal(c, "a processing instruction");
+		}
+		while(c >= 0 && c != '?') {
+			c = read();
+		}
+		if(c < 0) {
+			return;
+		}
+		final CharSequence target = seq.marked();
+		handler.processingInstruction(target, 0, target.length() - 1);
+		c = read();
+		if(c >= 0 && c != '>') {
+			throw illegal(c, "a processing instruction");
+		}
+	}
+
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+	}
+
+	private static boolean isNameEnd(int c) {
+		return c == '>' || c == '/' || isWhitespace(c);
+	}
+
+	private static boolean isBlank(@Nonnull CharSequence seq, int length) {
+		for(int i = 0 ; i < length ; ++i) {
+			if(!isWhitespace(seq.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IllegalArgumentException illegal(int c, @Nonnull String where) {
+		return new IllegalArgumentException(c < 0 ? String.format("Unexpected end of input in %s", where) : String.format("'%c' is not allowed in %s", (char) c, where));
+	}
+}
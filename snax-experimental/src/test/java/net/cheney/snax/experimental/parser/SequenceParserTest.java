@@ -0,0 +1,90 @@
+package net.cheney.snax.experimental.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.cheney.snax.SNAX;
+import net.cheney.snax.parser.BuilderHandler;
+import net.cheney.snax.parser.DefaultParseHandler;
+import net.cheney.snax.writer.XMLWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class SequenceParserTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test public void testSameDocumentAsSNAX() throws IOException {
+		for(String name : new String[] { "benchmark.xml", "oasis.xml", "periodic.xml", "xmltest.xml" }) {
+			String xml = new String(loadResource(name), UTF_8);
+			assertEquals(name, XMLWriter.write(SNAX.parse(xml)), parse(xml, 64 * 1024));
+		}
+	}
+
+	@Test public void testRingBufferWraps() {
+		StringBuilder sb = new StringBuilder("<?xml version='1.0'?><!DOCTYPE a [ <!ENTITY e 'x'> ] ><a>");
+		for(int i = 0; i < 500; i++) {
+			sb.append("<b x='").append(i).append("'y=\"\u00E9\">t\u00E9xt \uD834\uDD1E<![CDATA[<c/>]]><!-- c --><?pi d?></b>\n");
+		}
+		String xml = sb.append("</a>").toString();
+		assertEquals(XMLWriter.write(SNAX.parse(xml)), parse(xml, 64));
+	}
+
+	@Test public void testComments() {
+		for(String xml : new String[] { "<!-- a > b --><r/>", "<r><!-- see [1] below --><x/></r>", "<r>a<!---->b<!-- c --- -->c</r>" }) {
+			assertEquals(xml, XMLWriter.write(SNAX.parse(xml)), parse(xml, 64));
+		}
+		final List<String> comments = new ArrayList<String>();
+		ChannelReader reader = new ChannelReader(Channels.newChannel(new ByteArrayInputStream("<!-- a > b --><r><!-- see [1] below --><!----></r>".getBytes(UTF_8))), UTF_8, 64);
+		new SequenceParser(new DefaultParseHandler() {
+			@Override
+			public void comment(CharSequence seq, int offset, int length) {
+				comments.add(seq.subSequence(offset, offset + length).toString());
+			}
+		}).parse(reader.sequence());
+		assertEquals(Arrays.asList(" a > b ", " see [1] below ", ""), comments);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testTokenLongerThanTheBuffer() {
+		parse("<a>a text run that is longer than sixteen chars</a>", 16);
+	}
+
+	@Test public void testMarkedChars() {
+		ChannelSequence seq = new ChannelSequence(Channels.newChannel(new ByteArrayInputStream("0123456789abcdefghij".getBytes(UTF_8))), UTF_8, 16);
+		for(int i = 0; i < 12; i++) {
+			seq.next();
+		}
+		seq.mark();
+		while(seq.hasNext()) {
+			seq.next();
+		}
+		assertEquals("cdefghij", seq.marked().toString());
+		assertEquals("ef", seq.marked().subSequence(2, 4).toString());
+	}
+
+	private static String parse(String xml, int capacity) {
+		BuilderHandler handler = new BuilderHandler();
+		ChannelReader reader = new ChannelReader(Channels.newChannel(new ByteArrayInputStream(xml.getBytes(UTF_8))), UTF_8, capacity);
+		new SequenceParser(handler).parse(reader.sequence());
+		return XMLWriter.write(handler.document());
+	}
+
+	private byte[] loadResource(String name) throws IOException {
+		InputStream is = SequenceParserTest.class.getClassLoader().getResourceAsStream(name);
+		try {
+			return IOUtils.toByteArray(is);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package net.cheney.snax.experimental.parser;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import net.cheney.benchmark.Benchmark;
@@ -9,18 +11,25 @@ import net.cheney.benchmark.BenchmarkResult;
 import net.cheney.benchmark.Benchmarkable;
 import net.cheney.snax.SNAX;
 import net.cheney.snax.model.Document;
+import net.cheney.snax.parser.BuilderHandler;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
+/**
+ * Compares reading a whole document into a String and parsing it with streaming it through a 
+ * {@link ChannelSequence} of a fixed size into a {@link SequenceParser}.
+ */
 public class XMLParserBenchmark  {
 	
-	public final static class XMLStableBenchmark extends Benchmarkable {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	public abstract static class BaseBenchmark extends Benchmarkable {
 		
-		String doc;
+		protected byte[] doc;
 		private String name;
 		
-		public XMLStableBenchmark(String name) {
+		public BaseBenchmark(String name) {
 			this.name = name;
 		}
 
@@ -33,9 +42,9 @@ public class XMLParserBenchmark  {
 			return XMLParserBenchmark.class.getClassLoader().getResourceAsStream(string);
 		}
 
-		private static String readInputStream(InputStream stream) throws IOException {
+		private static byte[] readInputStream(InputStream stream) throws IOException {
 			try {
-				return IOUtils.toString(stream);
+				return IOUtils.toByteArray(stream);
 			} finally {
 				IOUtils.closeQuietly(stream);
 			}
@@ -47,9 +56,7 @@ public class XMLParserBenchmark  {
 			assertThat(!d.rootElement().qname().localpart().isEmpty());
 		}
 		
-		private Document parseDocument(String string) {
-			return new XMLBuilder().parse(string);
-		}
+		protected abstract Document parseDocument(byte[] bytes);
 		
 		private void assertThat(boolean bool) {
 			if(!bool) {
@@ -64,59 +71,36 @@ public class XMLParserBenchmark  {
 		
 	}
 	
-	public final static class XMLExperimentalBenchmark extends Benchmarkable {
+	public final static class WholeDocumentBenchmark extends BaseBenchmark {
 		
-		String doc;
-		private String name;
-		
-		public XMLExperimentalBenchmark(String name) {
-			this.name = name;
-		}
-
-		@Override
-		public void setup() throws IOException {
-			doc = readInputStream(getInputStream(name));
-		}
-		
-		private static InputStream getInputStream(String string) {
-			return XMLParserBenchmark.class.getClassLoader().getResourceAsStream(string);
-		}
-
-		private static String readInputStream(InputStream stream) throws IOException {
-			try {
-				return IOUtils.toString(stream);
-			} finally {
-				IOUtils.closeQuietly(stream);
-			}
+		public WholeDocumentBenchmark(String name) {
+			super(name);
 		}
 		
 		@Override
-		public void benchmark() {
-			Document d = parseDocument(doc);
-			assertThat(!d.rootElement().qname().localpart().isEmpty());
-		}
-		
-		private Document parseDocument(String string) {
-			return new SNAX.parse(string);
+		protected Document parseDocument(byte[] bytes) {
+			return SNAX.parse(new String(bytes, UTF_8));
 		}
+	}
+	
+	public final static class SequenceBenchmark extends BaseBenchmark {
 		
-		private void assertThat(boolean bool) {
-			if(!bool) {
-				throw new AssertionError();
-			}
+		public SequenceBenchmark(String name) {
+			super(name);
 		}
 		
 		@Override
-		public void teardown() {
-			doc = null;
+		protected Document parseDocument(byte[] bytes) {
+			BuilderHandler handler = new BuilderHandler();
+			new SequenceParser(handler).parse(new ChannelSequence(new ByteArrayInputStream(bytes), UTF_8));
+			return handler.document();
 		}
-		
 	}
 	
 	public static void main(String[] args) {
 		Benchmark.Builder benchmark = Benchmark.newBenchmark("Experimental Parser Benchmark");
 		for(String name : Arrays.asList(args)) {
-			benchmark = benchmark.of("Stable ["+name+"]", new XMLStableBenchmark(name)).and("Experimental ["+name+"]", new XMLExperimentalBenchmark(name));
+			benchmark = benchmark.of("Whole document ["+name+"]", new WholeDocumentBenchmark(name)).of("Sequence ["+name+"]", new SequenceBenchmark(name));
 		}
 		BenchmarkResult results = benchmark.setRepetitions(500).setIterations(25).run();
 		System.out.println(results.toString());